@@ -9,6 +9,7 @@ import android.content.res.AssetManager;
 import android.support.v4.app.ActivityCompat;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.View;
 import android.widget.Button;
@@ -23,14 +24,18 @@ import com.microsoft.cognitiveservices.speech.audio.AudioConfig;
 import com.microsoft.cognitiveservices.speech.KeywordRecognizer;
 import com.microsoft.cognitiveservices.speech.KeywordRecognitionResult;
 import com.microsoft.cognitiveservices.speech.ResultReason;
+import com.microsoft.cognitiveservices.speech.StreamStatus;
 import com.microsoft.cognitiveservices.speech.audio.PushAudioInputStream;
 
 import java.io.InputStream;
 import java.util.Arrays;
+import java.util.Locale;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 
 import static android.Manifest.permission.*;
 
@@ -68,32 +73,91 @@ public class MainActivity extends AppCompatActivity {
 
     }
 
-    final AtomicBoolean stopPumping = new AtomicBoolean();
-    private Runnable pump(final AudioDataStream src, final PushAudioInputStream dst)
-    {
-        return () -> {
+    // Moves the audio that follows the keyword into the push stream. While no
+    // audio is available it parks with a growing back-off instead of polling in
+    // a tight loop, and while audio is queued up it reads it in bigger chunks.
+    private static final class AudioPump implements Runnable {
+        // 100 ms of 16 kHz 16-bit mono audio; chunks are 1, 2, 4 or 8 times this.
+        private static final int MIN_CHUNK = 3200;
+        private static final int CHUNK_SIZES = 4;
+        private static final long MIN_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+        private static final long MAX_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+        private final AudioDataStream src;
+        private final PushAudioInputStream dst;
+        private final AtomicBoolean stopped = new AtomicBoolean();
+        // One buffer per chunk size, as write() takes a whole array.
+        private final byte[][] buffers = new byte[CHUNK_SIZES][];
+        private volatile Thread thread;
+
+        AudioPump(final AudioDataStream src, final PushAudioInputStream dst) {
+            this.src = src;
+            this.dst = dst;
+            for (int i = 0; i < CHUNK_SIZES; i++) {
+                buffers[i] = new byte[MIN_CHUNK << i];
+            }
+        }
+
+        void stop() {
+            stopped.set(true);
+            Thread t = thread;
+            if (t != null) {
+                LockSupport.unpark(t);
+            }
+        }
+
+        @Override
+        public void run() {
+            thread = Thread.currentThread();
+            long startCpuMillis = SystemClock.currentThreadTimeMillis();
+            long startMillis = SystemClock.elapsedRealtime();
+            long bytes = 0;
+            long chunks = 0;
+            long waits = 0;
+            int size = 0;
+            long waitNanos = MIN_WAIT_NANOS;
             try {
-                final byte[] buffer = new byte[300];
-                while (!stopPumping.get()) {
-                    if (!src.canReadData(300))
-                    {
-                        continue;
-                    }
-                    long count = src.readData(buffer);
-                    if (count == 0) {
+                while (!stopped.get()) {
+                    byte[] buffer = buffers[size];
+                    if (src.canReadData(buffer.length)) {
+                        long count = src.readData(buffer);
+                        if (count == 0) {
+                            break;
+                        }
+                        dst.write(count == buffer.length ? buffer : Arrays.copyOf(buffer, (int) count));
+                        bytes += count;
+                        chunks++;
+                        waitNanos = MIN_WAIT_NANOS;
+                        if (size + 1 < CHUNK_SIZES && src.canReadData(buffers[size + 1].length)) {
+                            size++;
+                        }
+                    } else if (size > 0) {
+                        size--;
+                    } else if (src.getStatus() == StreamStatus.AllData) {
+                        // Less than a chunk left at the end of the stream.
+                        long count = src.readData(buffer);
+                        if (count > 0) {
+                            dst.write(Arrays.copyOf(buffer, (int) count));
+                            bytes += count;
+                            chunks++;
+                        }
                         break;
-                    }
-                    if (count < 300) {
-                        dst.write(Arrays.copyOf(buffer, (int) count));
                     } else {
-                        dst.write(buffer);
+                        LockSupport.parkNanos(this, waitNanos);
+                        waits++;
+                        waitNanos = Math.min(waitNanos * 2, MAX_WAIT_NANOS);
                     }
                 }
             } catch (Exception ex)
             {
                 Log.e("SpeechSDKDemo", "Pump got an exception");
             }
-        };
+            Log.i("SpeechSDKDemo", String.format(Locale.US,
+                    "Pump moved %d bytes in %d chunks, waited %d times, used %d ms CPU in %d ms",
+                    bytes, chunks, waits,
+                    SystemClock.currentThreadTimeMillis() - startCpuMillis,
+                    SystemClock.elapsedRealtime() - startMillis));
+        }
     }
 
     public void onSpeechButtonClicked(View v) {
@@ -132,24 +196,32 @@ public class MainActivity extends AppCompatActivity {
                 SpeechConfig srConfig = SpeechConfig.fromSubscription(speechSubscriptionKey, serviceRegion);
                 SpeechRecognizer speechRecognizer = new SpeechRecognizer(srConfig, srAudioConfig);
                 /* We pump the audio into the push stream */
-                stopPumping.set(false);
-                es.execute(pump(audioDataStream, srInputStream));
-                SpeechRecognitionResult srResult = speechRecognizer.recognizeOnceAsync().get();
-                stopPumping.set(true);
-                if (srResult.getReason() == ResultReason.RecognizedSpeech) {
-                    updateText("Recognized Speech " + srResult.getText());
-                }
-                else {
-                    updateText("Error: got the wrong sort of recognition.");
+                AudioPump pump = new AudioPump(audioDataStream, srInputStream);
+                Future<?> pumping = es.submit(pump);
+                try {
+                    SpeechRecognitionResult srResult = speechRecognizer.recognizeOnceAsync().get();
+                    if (srResult.getReason() == ResultReason.RecognizedSpeech) {
+                        updateText("Recognized Speech " + srResult.getText());
+                    }
+                    else {
+                        updateText("Error: got the wrong sort of recognition.");
+                    }
+                } finally {
+                    try {
+                        /* Let the pump finish before the streams are closed */
+                        pump.stop();
+                        pumping.get();
+                    } finally {
+                        audioDataStream.detachInput();
+                        audioDataStream.close();
+                        reco.close();
+                        config.close();
+                        speechRecognizer.close();
+                        srAudioConfig.close();
+                        srConfig.close();
+                        srInputStream.close();
+                    }
                 }
-                audioDataStream.detachInput();
-                audioDataStream.close();
-                reco.close();
-                config.close();
-                speechRecognizer.close();
-                srAudioConfig.close();
-                srConfig.close();
-                srInputStream.close();
             } catch (Exception ex) {
                 Log.e("SpeechSDKDemo", "unexpected " + ex.getMessage());
                 enableButton(true);
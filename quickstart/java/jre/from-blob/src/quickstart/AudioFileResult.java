@@ -0,0 +1,6 @@
+package quickstart;
+
+public class AudioFileResult {
+    public String AudioFileName;
+    public SegmentResult[] SegmentResults;
+}
@@ -0,0 +1,374 @@
+package quickstart;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.Gson;
+
+// Client for the batch transcription REST API.
+//
+// All requests go through one HttpClient, which keeps connections open and
+// multiplexes requests over HTTP/2 where the service supports it, and through a
+// RequestThrottle, which keeps them under the configured rate and number in
+// flight. No thread waits between requests: status checks are scheduled, and
+// responses are parsed on the client's worker threads while the HttpClient's own
+// threads deliver their bodies. Every method returns a future, so thousands of
+// transcriptions can be submitted from one thread.
+public class BatchTranscriptionClient implements AutoCloseable {
+
+    public static class Config {
+        private URI serviceUri;
+        private String subscriptionKey;
+        private double requestsPerSecond = 10;
+        private int maxConcurrentRequests = 32;
+        private long initialPollIntervalMillis = 1000;
+        private long maxPollIntervalMillis = 60000;
+        private double pollBackoffMultiplier = 2;
+        private double pollJitter = 0.2;
+        private boolean listTranscriptions;
+        private int listPageSize = 100;
+        private long requestTimeoutMillis = 30000;
+        private int workerThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+        public Config(URI serviceUri, String subscriptionKey) {
+            this.serviceUri = serviceUri;
+            this.subscriptionKey = subscriptionKey;
+        }
+
+        public static Config fromSubscription(String subscriptionKey, String region) {
+            return new Config(URI.create("https://" + region + ".cris.ai/api/speechtotext/v2.0/Transcriptions/"),
+                    subscriptionKey);
+        }
+
+        public URI getServiceUri() {
+            return serviceUri;
+        }
+
+        public void setServiceUri(URI serviceUri) {
+            this.serviceUri = serviceUri;
+        }
+
+        public String getSubscriptionKey() {
+            return subscriptionKey;
+        }
+
+        public void setSubscriptionKey(String subscriptionKey) {
+            this.subscriptionKey = subscriptionKey;
+        }
+
+        // 0 for no rate limit.
+        public double getRequestsPerSecond() {
+            return requestsPerSecond;
+        }
+
+        public void setRequestsPerSecond(double requestsPerSecond) {
+            this.requestsPerSecond = requestsPerSecond;
+        }
+
+        public int getMaxConcurrentRequests() {
+            return maxConcurrentRequests;
+        }
+
+        public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+            this.maxConcurrentRequests = maxConcurrentRequests;
+        }
+
+        // The wait before the first status check of a transcription.
+        public long getInitialPollIntervalMillis() {
+            return initialPollIntervalMillis;
+        }
+
+        public void setInitialPollIntervalMillis(long initialPollIntervalMillis) {
+            this.initialPollIntervalMillis = initialPollIntervalMillis;
+        }
+
+        public long getMaxPollIntervalMillis() {
+            return maxPollIntervalMillis;
+        }
+
+        public void setMaxPollIntervalMillis(long maxPollIntervalMillis) {
+            this.maxPollIntervalMillis = maxPollIntervalMillis;
+        }
+
+        // The factor by which the wait grows after each check.
+        public double getPollBackoffMultiplier() {
+            return pollBackoffMultiplier;
+        }
+
+        public void setPollBackoffMultiplier(double pollBackoffMultiplier) {
+            this.pollBackoffMultiplier = pollBackoffMultiplier;
+        }
+
+        // The largest fraction by which a wait is randomly shortened, between 0 and 1.
+        public double getPollJitter() {
+            return pollJitter;
+        }
+
+        public void setPollJitter(double pollJitter) {
+            this.pollJitter = pollJitter;
+        }
+
+        // Whether to check transcriptions by listing the collection instead of one by one.
+        public boolean isListTranscriptions() {
+            return listTranscriptions;
+        }
+
+        public void setListTranscriptions(boolean listTranscriptions) {
+            this.listTranscriptions = listTranscriptions;
+        }
+
+        public int getListPageSize() {
+            return listPageSize;
+        }
+
+        public void setListPageSize(int listPageSize) {
+            this.listPageSize = listPageSize;
+        }
+
+        public long getRequestTimeoutMillis() {
+            return requestTimeoutMillis;
+        }
+
+        public void setRequestTimeoutMillis(long requestTimeoutMillis) {
+            this.requestTimeoutMillis = requestTimeoutMillis;
+        }
+
+        public int getWorkerThreads() {
+            return workerThreads;
+        }
+
+        public void setWorkerThreads(int workerThreads) {
+            this.workerThreads = workerThreads;
+        }
+    }
+
+    private final Config config;
+    private final Gson gson = new Gson();
+    private final ExecutorService workers;
+    private final ScheduledExecutorService scheduler;
+    private final HttpClient http;
+    private final RequestThrottle throttle;
+    private final TranscriptionPoller poller;
+    private final AtomicLong requestCount = new AtomicLong();
+    // Futures handed out and not yet completed, failed by close().
+    private final Set<CompletableFuture<?>> pending = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    public BatchTranscriptionClient(Config config) {
+        if (config.getServiceUri() == null || config.getSubscriptionKey() == null) {
+            throw new IllegalArgumentException("serviceUri and subscriptionKey must be set");
+        }
+        if (config.getInitialPollIntervalMillis() <= 0 || config.getMaxPollIntervalMillis() < config.getInitialPollIntervalMillis()
+                || config.getPollBackoffMultiplier() < 1 || config.getPollJitter() < 0 || config.getPollJitter() > 1
+                || config.getListPageSize() <= 0) {
+            throw new IllegalArgumentException("invalid polling settings");
+        }
+        this.config = config;
+        this.workers = Executors.newFixedThreadPool(config.getWorkerThreads(), daemonThreads("transcription-worker"));
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("transcription-scheduler"));
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(config.getRequestTimeoutMillis()))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        this.throttle = new RequestThrottle(scheduler, config.getRequestsPerSecond(), config.getMaxConcurrentRequests());
+        this.poller = new TranscriptionPoller(this, config, scheduler);
+    }
+
+    // Creates a transcription and returns its location.
+    public CompletableFuture<URI> submitAsync(TranscriptionDefinition definition) {
+        HttpRequest request = newRequest(config.getServiceUri())
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(definition)))
+                .build();
+        return send(request, 202, response -> {
+            String location = response.headers().firstValue("location").orElse(null);
+            if (location == null) {
+                throw new BatchTranscriptionException("The service did not return the transcription location", response.statusCode());
+            }
+            return config.getServiceUri().resolve(location);
+        });
+    }
+
+    public CompletableFuture<Transcription> getTranscriptionAsync(URI location) {
+        return send(newRequest(location).GET().build(), 200, response -> parse(response.body(), Transcription.class));
+    }
+
+    public CompletableFuture<RootObject> getResultAsync(URI resultUri) {
+        return send(newRequest(resultUri).GET().build(), 200, response -> parse(response.body(), RootObject.class));
+    }
+
+    // Streams a result to the handler as it is received, one segment at a time,
+    // so that results of any size take constant memory; see SegmentResultReader.
+    // Returns the number of segments.
+    public CompletableFuture<Long> forEachSegmentAsync(URI resultUri, boolean displayOnly, SegmentResultReader.Handler handler) {
+        return send(newRequest(resultUri).GET().build(), 200, response ->
+                new SegmentResultReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8), gson, displayOnly)
+                        .forEach(handler));
+    }
+
+    // Checks the status of a transcription until it has succeeded or failed, on
+    // the adaptive schedule of the client's TranscriptionPoller.
+    public CompletableFuture<Transcription> waitForCompletionAsync(URI location) {
+        if (closed) {
+            return CompletableFuture.failedFuture(closedException());
+        }
+        return track(poller.watch(location));
+    }
+
+    // Submits a transcription, waits for it and fetches the result of its first channel.
+    public CompletableFuture<RootObject> transcribeAsync(TranscriptionDefinition definition) {
+        return resultUriAsync(definition).thenCompose(this::getResultAsync);
+    }
+
+    // Submits a transcription, waits for it and streams the result of its first
+    // channel to the handler. Returns the number of segments.
+    public CompletableFuture<Long> transcribeAsync(TranscriptionDefinition definition, boolean displayOnly,
+            SegmentResultReader.Handler handler) {
+        return resultUriAsync(definition).thenCompose(uri -> forEachSegmentAsync(uri, displayOnly, handler));
+    }
+
+    // One future per definition, in the same order.
+    public List<CompletableFuture<RootObject>> transcribeAllAsync(Collection<TranscriptionDefinition> definitions) {
+        List<CompletableFuture<RootObject>> results = new ArrayList<>(definitions.size());
+        for (TranscriptionDefinition definition : definitions) {
+            results.add(transcribeAsync(definition));
+        }
+        return results;
+    }
+
+    // Requests sent to the service so far, including status checks.
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    private CompletableFuture<URI> resultUriAsync(TranscriptionDefinition definition) {
+        return submitAsync(definition)
+                .thenCompose(this::waitForCompletionAsync)
+                .thenCompose(transcription -> {
+                    String resultUrl = transcription.resultsUrls == null ? null : transcription.resultsUrls.get("channel_0");
+                    if (resultUrl == null) {
+                        return CompletableFuture.failedFuture(new IOException("The transcription has no results"));
+                    }
+                    return CompletableFuture.completedFuture(URI.create(resultUrl));
+                });
+    }
+
+    // Stops all requests and status checks; futures not completed yet fail.
+    @Override
+    public void close() {
+        closed = true;
+        scheduler.shutdownNow();
+        workers.shutdownNow();
+        for (CompletableFuture<?> future : pending) {
+            future.completeExceptionally(closedException());
+        }
+    }
+
+    HttpRequest.Builder newRequest(URI uri) {
+        return HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofMillis(config.getRequestTimeoutMillis()))
+                .header("Ocp-Apim-Subscription-Key", config.getSubscriptionKey());
+    }
+
+    private interface ResponseParser<T> {
+        T parse(HttpResponse<InputStream> response) throws IOException;
+    }
+
+    // Sends a request under the throttle. Completes on a worker thread, which
+    // may read the body; the caller must close it.
+    CompletableFuture<HttpResponse<InputStream>> sendAsync(HttpRequest request) {
+        return throttle.submit(() -> {
+            requestCount.incrementAndGet();
+            return http.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+        }).whenCompleteAsync((response, error) -> {
+            // Only moves the completion off the HttpClient's threads.
+        }, workers);
+    }
+
+    private <T> CompletableFuture<T> send(HttpRequest request, int expectedStatus, ResponseParser<T> parser) {
+        if (closed) {
+            return CompletableFuture.failedFuture(closedException());
+        }
+        CompletableFuture<T> result = track(new CompletableFuture<>());
+        sendAsync(request).whenComplete((response, error) -> {
+            if (error != null) {
+                result.completeExceptionally(unwrap(error));
+                return;
+            }
+            try {
+                try {
+                    if (response.statusCode() != expectedStatus) {
+                        throw new BatchTranscriptionException(
+                                request.method() + " " + request.uri() + " returned unexpected http code", response.statusCode());
+                    }
+                    result.complete(parser.parse(response));
+                } finally {
+                    // Closing the body, read or not, returns the connection to the pool.
+                    response.body().close();
+                }
+            } catch (IOException | RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    private <T> CompletableFuture<T> track(CompletableFuture<T> future) {
+        pending.add(future);
+        future.whenComplete((t, e) -> pending.remove(future));
+        // close() may have run before the future was added.
+        if (closed) {
+            future.completeExceptionally(closedException());
+        }
+        return future;
+    }
+
+    private static IOException closedException() {
+        return new IOException("The client was closed");
+    }
+
+    <T> T parse(InputStream body, Class<T> type) throws IOException {
+        try (Reader reader = new InputStreamReader(body, StandardCharsets.UTF_8)) {
+            return gson.fromJson(reader, type);
+        }
+    }
+
+    // Reports the IOException of a failed request rather than its wrappers.
+    static Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,19 @@
+package quickstart;
+
+import java.io.IOException;
+
+// The service answered a request with an unexpected status code.
+public class BatchTranscriptionException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+
+    public BatchTranscriptionException(String message, int statusCode) {
+        super(message + " (status code " + statusCode + ")");
+        this.statusCode = statusCode;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
@@ -1,96 +1,12 @@
 package quickstart;
 
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
+import java.net.URI;
 import java.net.URL;
-import java.util.Date;
-import java.util.Dictionary;
-import java.util.Hashtable;
-import java.util.UUID;
-
-import com.google.gson.Gson;
-
-final class Transcription {
-    public String name;
-    public String description;
-    public String locale;
-    public URL recordingsUrl;
-    public Hashtable<String, String> resultsUrls;
-    public UUID id;
-    public Date createdDateTime;
-    public Date lastActionDateTime;
-    public String status;
-    public String statusMessage;
-}
-
-final class TranscriptionDefinition {
-    private TranscriptionDefinition(String name, String description, String locale, URL recordingsUrl,
-            ModelIdentity[] models) {
-        this.Name = name;
-        this.Description = description;
-        this.RecordingsUrl = recordingsUrl;
-        this.Locale = locale;
-        this.Models = models;
-        this.properties = new Hashtable<String, String>();
-        this.properties.put("PunctuationMode", "DictatedAndAutomatic");
-        this.properties.put("ProfanityFilterMode", "Masked");
-        this.properties.put("AddWordLevelTimestamps", "True");
-    }
-
-    public String Name;
-    public String Description;
-    public URL RecordingsUrl;
-    public String Locale;
-    public ModelIdentity[] Models;
-    public Dictionary<String, String> properties;
-
-    public static TranscriptionDefinition Create(String name, String description, String locale, URL recordingsUrl) {
-        return TranscriptionDefinition.Create(name, description, locale, recordingsUrl, new ModelIdentity[0]);
-    }
-
-    public static TranscriptionDefinition Create(String name, String description, String locale, URL recordingsUrl,
-            ModelIdentity[] models) {
-        return new TranscriptionDefinition(name, description, locale, recordingsUrl, models);
-    }
-}
-
-final class ModelIdentity {
-    private ModelIdentity(UUID id) {
-        this.Id = id;
-    }
-
-    public UUID Id;
-
-    public static ModelIdentity Create(UUID Id) {
-        return new ModelIdentity(Id);
-    }
-}
-
-class AudioFileResult {
-    public String AudioFileName;
-    public SegmentResult[] SegmentResults;
-}
-
-class RootObject {
-    public AudioFileResult[] AudioFileResults;
-}
-
-class NBest {
-    public double Confidence;
-    public String Lexical;
-    public String ITN;
-    public String MaskedITN;
-    public String Display;
-}
-
-class SegmentResult {
-    public String RecognitionStatus;
-    public String Offset;
-    public String Duration;
-    public NBest[] NBest;
-}
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 public class Main {
 
@@ -101,106 +17,80 @@ public class Main {
     private static String Name = "Simple transcription";
     private static String Description = "Simple transcription description";
 
-    public static void main(String[] args) throws IOException, InterruptedException {
-        System.out.println("Starting transcriptions client...");
-        String url = "https://" + region + ".cris.ai/api/speechtotext/v2.0/Transcriptions/";
-        URL serviceUrl = new URL(url);
+    // Run with "--stub <count> [--list]" to transcribe count recordings with a
+    // local stub server instead of the service, optionally checking their status
+    // by listing the collection.
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 2 && args[0].equals("--stub")) {
+            transcribeWithStub(Integer.parseInt(args[1]), args.length > 2 && args[2].equals("--list"));
+            return;
+        }
 
-        HttpURLConnection postConnection = (HttpURLConnection) serviceUrl.openConnection();
-        postConnection.setDoOutput(true);
-        postConnection.setRequestMethod("POST");
-        postConnection.setRequestProperty("Content-Type", "application/json");
-        postConnection.setRequestProperty("Ocp-Apim-Subscription-Key", subscriptionKey);
+        System.out.println("Starting transcriptions client...");
+        BatchTranscriptionClient.Config config = BatchTranscriptionClient.Config.fromSubscription(subscriptionKey, region);
 
         TranscriptionDefinition definition = TranscriptionDefinition.Create(Name, Description, Locale,
                 new URL(RecordingsBlobUri));
 
-        Gson gson = new Gson();
+        try (BatchTranscriptionClient client = new BatchTranscriptionClient(config)) {
+            URI transcriptionLocation = client.submitAsync(definition).get();
+            System.out.println("Transcription is located at " + transcriptionLocation);
 
-        OutputStream stream = postConnection.getOutputStream();
-        stream.write(gson.toJson(definition).getBytes());
-        stream.flush();
+            Transcription t = client.waitForCompletionAsync(transcriptionLocation).get();
+            String result = t.resultsUrls.get("channel_0");
+            System.out.println("Transcription has completed. Results are at " + result);
 
-        int statusCode = postConnection.getResponseCode();
-
-        if (statusCode != HttpURLConnection.HTTP_ACCEPTED) {
-            System.out.println("Unexpected status code " + statusCode);
-            return;
+            System.out.println("Fetching results");
+            long segments = client.forEachSegmentAsync(URI.create(result), false, Main::printSegment).get();
+            System.out.println("There were " + segments + " results");
+        } catch (ExecutionException e) {
+            System.out.println(BatchTranscriptionClient.unwrap(e.getCause()).getMessage());
         }
+    }
 
-        String transcriptionLocation = postConnection.getHeaderField("location");
-
-        System.out.println("Transcription is located at " + transcriptionLocation);
-
-        URL transcriptionUrl = new URL(transcriptionLocation);
-
-        boolean completed = false;
-        while (!completed) {
-            {
-                HttpURLConnection getConnection = (HttpURLConnection) transcriptionUrl.openConnection();
-                getConnection.setRequestProperty("Ocp-Apim-Subscription-Key", subscriptionKey);
-                getConnection.setRequestMethod("GET");
+    // Results are printed as they arrive rather than after the whole document is read.
+    private static void printSegment(String audioFileName, SegmentResult segResult) {
+        System.out.println("Status: " + segResult.RecognitionStatus + " in " + audioFileName);
+        if ("success".equalsIgnoreCase(segResult.RecognitionStatus) && segResult.NBest != null && segResult.NBest.length > 0) {
+            System.out.println("Best text result was: '" + segResult.NBest[0].Display + "'");
+        }
+    }
 
-                int responseCode = getConnection.getResponseCode();
+    private static void transcribeWithStub(int count, boolean listTranscriptions) throws Exception {
+        try (StubTranscriptionServer server = new StubTranscriptionServer(2000, 20)) {
+            BatchTranscriptionClient.Config config = new BatchTranscriptionClient.Config(server.getServiceUri(), "StubKey");
+            config.setRequestsPerSecond(0);
+            config.setMaxConcurrentRequests(64);
+            config.setInitialPollIntervalMillis(250);
+            config.setMaxPollIntervalMillis(2000);
+            config.setListTranscriptions(listTranscriptions);
+
+            List<TranscriptionDefinition> definitions = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                definitions.add(TranscriptionDefinition.Create(Name + " " + i, Description, Locale,
+                        new URL("https://example.com/recordings/" + i + ".wav")));
+            }
 
-                if (responseCode != HttpURLConnection.HTTP_OK) {
-                    System.out.println("Fetching the transcription returned unexpected http code " + responseCode);
-                    return;
+            long start = System.nanoTime();
+            try (BatchTranscriptionClient client = new BatchTranscriptionClient(config)) {
+                List<CompletableFuture<Long>> results = new ArrayList<>();
+                for (TranscriptionDefinition definition : definitions) {
+                    results.add(client.transcribeAsync(definition, true, (audioFileName, segment) -> { }));
                 }
-
-                Transcription t = gson.fromJson(new InputStreamReader(getConnection.getInputStream()),
-                        Transcription.class);
-
-                switch (t.status) {
-                case "Failed":
-                    completed = true;
-                    System.out.println("Transcription has failed " + t.statusMessage);
-                    break;
-                case "Succeeded":
-                    completed = true;
-                    String result = t.resultsUrls.get("channel_0");
-                    System.out.println("Transcription has completed. Results are at " + result);
-
-                    System.out.println("Fetching results");
-                    URL resultUrl = new URL(result);
-
-                    HttpURLConnection resultConnection = (HttpURLConnection) resultUrl.openConnection();
-                    resultConnection.setRequestProperty("Ocp-Apim-Subscription-Key", subscriptionKey);
-                    resultConnection.setRequestMethod("GET");
-
-                    responseCode = resultConnection.getResponseCode();
-
-                    if (responseCode != HttpURLConnection.HTTP_OK) {
-                        System.out.println("Fetching the transcription returned unexpected http code " + responseCode);
-                        return;
+                long segments = 0;
+                int failed = 0;
+                for (CompletableFuture<Long> result : results) {
+                    try {
+                        segments += result.get();
+                    } catch (ExecutionException e) {
+                        failed++;
                     }
-
-                    RootObject root = gson.fromJson(new InputStreamReader(resultConnection.getInputStream()),
-                            RootObject.class);
-
-                    for (AudioFileResult af : root.AudioFileResults) {
-                        System.out
-                                .println("There were " + af.SegmentResults.length + " results in " + af.AudioFileName);
-                        for (SegmentResult segResult : af.SegmentResults) {
-                            System.out.println("Status: " + segResult.RecognitionStatus);
-                            if (segResult.RecognitionStatus.equalsIgnoreCase("success") && segResult.NBest.length > 0) {
-                                System.out.println("Best text result was: '" + segResult.NBest[0].Display + "'");
-                            }
-                        }
-                    }
-
-                    break;
-                case "Running":
-                    System.out.println("Transcription is running.");
-                    break;
-                case "NotStarted":
-                    System.out.println("Transcription has not started.");
-                    break;
-                }
-
-                if (!completed) {
-                    Thread.sleep(5000);
                 }
+                long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                System.out.println(String.format("Transcribed %d recordings (%d failed, %d segments) in %d ms with %d requests"
+                        + " (%d status checks, %d list pages).",
+                        count, failed, segments, elapsedMillis, client.getRequestCount(),
+                        server.getStatusRequestCount(), server.getListRequestCount()));
             }
         }
     }
@@ -0,0 +1,15 @@
+package quickstart;
+
+import java.util.UUID;
+
+public final class ModelIdentity {
+    private ModelIdentity(UUID id) {
+        this.Id = id;
+    }
+
+    public UUID Id;
+
+    public static ModelIdentity Create(UUID Id) {
+        return new ModelIdentity(Id);
+    }
+}
@@ -0,0 +1,9 @@
+package quickstart;
+
+public class NBest {
+    public double Confidence;
+    public String Lexical;
+    public String ITN;
+    public String MaskedITN;
+    public String Display;
+}
@@ -0,0 +1,95 @@
+package quickstart;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Limits requests to the service to a rate and a number in flight, without
+// blocking any thread: a request waits in a queue for a free slot, then for its
+// turn in the rate, on the scheduler.
+final class RequestThrottle {
+    private final ScheduledExecutorService scheduler;
+    private final long intervalNanos;
+    private final int maxInFlight;
+    private final AtomicLong nextStartNanos = new AtomicLong(System.nanoTime());
+    private final Queue<Runnable> waiting = new ArrayDeque<>();
+    private int inFlight;
+
+    RequestThrottle(ScheduledExecutorService scheduler, double requestsPerSecond, int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight must be positive");
+        }
+        this.scheduler = scheduler;
+        this.intervalNanos = requestsPerSecond > 0 ? (long) (1e9 / requestsPerSecond) : 0;
+        this.maxInFlight = maxInFlight;
+    }
+
+    <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> request) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable start = () -> schedule(() -> {
+            CompletableFuture<T> response;
+            try {
+                response = request.get();
+            } catch (RuntimeException e) {
+                response = CompletableFuture.failedFuture(e);
+            }
+            response.whenComplete((value, error) -> {
+                release();
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+        });
+
+        boolean startNow;
+        synchronized (this) {
+            startNow = inFlight < maxInFlight;
+            if (startNow) {
+                inFlight++;
+            } else {
+                waiting.add(start);
+            }
+        }
+        if (startNow) {
+            start.run();
+        }
+        return result;
+    }
+
+    synchronized int getWaitingCount() {
+        return waiting.size();
+    }
+
+    private void schedule(Runnable task) {
+        long delay = 0;
+        if (intervalNanos > 0) {
+            long now = System.nanoTime();
+            long slot = nextStartNanos.getAndAccumulate(now, (next, n) -> Math.max(next, n) + intervalNanos);
+            delay = Math.max(0, slot - now);
+        }
+        if (delay == 0) {
+            scheduler.execute(task);
+        } else {
+            scheduler.schedule(task, delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void release() {
+        Runnable next;
+        synchronized (this) {
+            next = waiting.poll();
+            if (next == null) {
+                inFlight--;
+            }
+        }
+        if (next != null) {
+            next.run();
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package quickstart;
+
+public class RootObject {
+    public AudioFileResult[] AudioFileResults;
+}
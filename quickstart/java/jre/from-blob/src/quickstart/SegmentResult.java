@@ -0,0 +1,13 @@
+package quickstart;
+
+public class SegmentResult {
+    // Ticks of 100 ns per tick.
+    public static final long TICKS_PER_MILLISECOND = 10000;
+
+    public String RecognitionStatus;
+    // In ticks. The service writes them as strings; they are decoded to numbers
+    // once, when the segment is read.
+    public long Offset;
+    public long Duration;
+    public NBest[] NBest;
+}
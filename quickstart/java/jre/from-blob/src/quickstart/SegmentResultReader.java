@@ -0,0 +1,229 @@
+package quickstart;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+// Reads the segments of a results document one at a time, as a RootObject would
+// hold them in AudioFileResults[].SegmentResults[], without loading the document.
+// Only the segment being read is in memory, so results of any size take the
+// same memory.
+//
+// With displayOnly, segments only have their Offset, their Duration and an NBest
+// array with the Display text of the first entry, whose Confidence is NaN;
+// everything else is skipped without being decoded.
+//
+// getAudioFileName() is the name of the file of the last segment returned, when
+// the document gives it before the segments, as the service does.
+public final class SegmentResultReader implements Iterator<SegmentResult>, Closeable {
+
+    public interface Handler {
+        void onSegment(String audioFileName, SegmentResult segment);
+    }
+
+    private enum Position {
+        START, ROOT, FILES, FILE, SEGMENTS, END
+    }
+
+    private final JsonReader reader;
+    // Null when displayOnly.
+    private final TypeAdapter<SegmentResult> adapter;
+    private Position position = Position.START;
+    private String audioFileName;
+    private String nextAudioFileName;
+    private SegmentResult next;
+
+    public SegmentResultReader(Reader in, Gson gson, boolean displayOnly) {
+        this.reader = new JsonReader(in);
+        this.adapter = displayOnly ? null : gson.getAdapter(SegmentResult.class);
+    }
+
+    // Reads every segment, then closes the reader. Returns the number of segments.
+    public long forEach(Handler handler) throws IOException {
+        long count = 0;
+        try {
+            while (hasNext()) {
+                SegmentResult segment = next();
+                handler.onSegment(audioFileName, segment);
+                count++;
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            close();
+        }
+        return count;
+    }
+
+    public String getAudioFileName() {
+        return audioFileName;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && position != Position.END) {
+            try {
+                next = advance();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public SegmentResult next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        SegmentResult segment = next;
+        next = null;
+        audioFileName = nextAudioFileName;
+        return segment;
+    }
+
+    @Override
+    public void close() throws IOException {
+        position = Position.END;
+        reader.close();
+    }
+
+    // Walks the document up to the next segment; null at its end.
+    private SegmentResult advance() throws IOException {
+        while (true) {
+            switch (position) {
+            case START:
+                reader.beginObject();
+                position = Position.ROOT;
+                break;
+            case ROOT:
+                if (!reader.hasNext()) {
+                    reader.endObject();
+                    position = Position.END;
+                } else if (reader.nextName().equals("AudioFileResults") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    reader.beginArray();
+                    position = Position.FILES;
+                } else {
+                    reader.skipValue();
+                }
+                break;
+            case FILES:
+                if (!reader.hasNext()) {
+                    reader.endArray();
+                    position = Position.ROOT;
+                } else {
+                    reader.beginObject();
+                    nextAudioFileName = null;
+                    position = Position.FILE;
+                }
+                break;
+            case FILE:
+                if (!reader.hasNext()) {
+                    reader.endObject();
+                    position = Position.FILES;
+                    break;
+                }
+                String name = reader.nextName();
+                if (name.equals("AudioFileName")) {
+                    nextAudioFileName = nextStringOrNull();
+                } else if (name.equals("SegmentResults") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    reader.beginArray();
+                    position = Position.SEGMENTS;
+                } else {
+                    reader.skipValue();
+                }
+                break;
+            case SEGMENTS:
+                if (!reader.hasNext()) {
+                    reader.endArray();
+                    position = Position.FILE;
+                } else if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                } else {
+                    return adapter != null ? adapter.read(reader) : readDisplayOnly();
+                }
+                break;
+            default:
+                return null;
+            }
+        }
+    }
+
+    private SegmentResult readDisplayOnly() throws IOException {
+        SegmentResult segment = new SegmentResult();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+            case "Offset":
+                segment.Offset = nextLongOrZero();
+                break;
+            case "Duration":
+                segment.Duration = nextLongOrZero();
+                break;
+            case "NBest":
+                segment.NBest = readFirstDisplay();
+                break;
+            default:
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return segment;
+    }
+
+    private NBest[] readFirstDisplay() throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return null;
+        }
+        NBest best = null;
+        reader.beginArray();
+        if (reader.hasNext() && reader.peek() == JsonToken.BEGIN_OBJECT) {
+            best = new NBest();
+            // Not read, so unknown rather than 0.
+            best.Confidence = Double.NaN;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("Display")) {
+                    best.Display = nextStringOrNull();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        while (reader.hasNext()) {
+            reader.skipValue();
+        }
+        reader.endArray();
+        return best == null ? new NBest[0] : new NBest[] { best };
+    }
+
+    // Numbers, also when written as strings.
+    private long nextLongOrZero() throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            return reader.nextLong();
+        }
+        reader.skipValue();
+        return 0;
+    }
+
+    // Strings and numbers as text.
+    private String nextStringOrNull() throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            return reader.nextString();
+        }
+        reader.skipValue();
+        return null;
+    }
+}
@@ -0,0 +1,182 @@
+package quickstart;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Segments stored by column, for sorting, windowing and aligning millions of
+// them by time: one primitive array per field instead of one object per
+// segment. Display texts and audio file names are interned in a pool and stored
+// as indexes into it, so repeated texts are kept once.
+//
+// The table is a SegmentResultReader.Handler, so a result can be streamed into
+// it. It is not thread-safe.
+public final class SegmentTable implements SegmentResultReader.Handler {
+    private static final int NO_TEXT = -1;
+
+    private long[] offsets = new long[16];
+    private long[] durations = new long[16];
+    private float[] confidences = new float[16];
+    private int[] displays = new int[16];
+    private int[] audioFileNames = new int[16];
+    private int size;
+    private final List<String> pool = new ArrayList<>();
+    private final Map<String, Integer> poolIndexes = new HashMap<>();
+
+    // Adds the segment with the confidence and Display text of its first NBest entry.
+    @Override
+    public void onSegment(String audioFileName, SegmentResult segment) {
+        NBest best = segment.NBest != null && segment.NBest.length > 0 ? segment.NBest[0] : null;
+        add(audioFileName, segment.Offset, segment.Duration,
+                best == null ? Float.NaN : (float) best.Confidence, best == null ? null : best.Display);
+    }
+
+    // Offset and duration in ticks; NaN for an unknown confidence.
+    public void add(String audioFileName, long offset, long duration, float confidence, String display) {
+        if (size == offsets.length) {
+            int capacity = size * 2;
+            offsets = Arrays.copyOf(offsets, capacity);
+            durations = Arrays.copyOf(durations, capacity);
+            confidences = Arrays.copyOf(confidences, capacity);
+            displays = Arrays.copyOf(displays, capacity);
+            audioFileNames = Arrays.copyOf(audioFileNames, capacity);
+        }
+        offsets[size] = offset;
+        durations[size] = duration;
+        confidences[size] = confidence;
+        displays[size] = intern(display);
+        audioFileNames[size] = intern(audioFileName);
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getOffset(int index) {
+        checkIndex(index);
+        return offsets[index];
+    }
+
+    public long getDuration(int index) {
+        checkIndex(index);
+        return durations[index];
+    }
+
+    public long getEnd(int index) {
+        checkIndex(index);
+        return offsets[index] + durations[index];
+    }
+
+    public float getConfidence(int index) {
+        checkIndex(index);
+        return confidences[index];
+    }
+
+    public String getDisplay(int index) {
+        checkIndex(index);
+        return text(displays[index]);
+    }
+
+    public String getAudioFileName(int index) {
+        checkIndex(index);
+        return text(audioFileNames[index]);
+    }
+
+    // Distinct texts and file names held by the pool.
+    public int getPoolSize() {
+        return pool.size();
+    }
+
+    // Orders the segments by offset, keeping the order of segments with the same offset.
+    public void sortByOffset() {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        mergeSort(order, new int[size], 0, size);
+
+        long[] sortedOffsets = new long[offsets.length];
+        long[] sortedDurations = new long[durations.length];
+        float[] sortedConfidences = new float[confidences.length];
+        int[] sortedDisplays = new int[displays.length];
+        int[] sortedAudioFileNames = new int[audioFileNames.length];
+        for (int i = 0; i < size; i++) {
+            int from = order[i];
+            sortedOffsets[i] = offsets[from];
+            sortedDurations[i] = durations[from];
+            sortedConfidences[i] = confidences[from];
+            sortedDisplays[i] = displays[from];
+            sortedAudioFileNames[i] = audioFileNames[from];
+        }
+        offsets = sortedOffsets;
+        durations = sortedDurations;
+        confidences = sortedConfidences;
+        displays = sortedDisplays;
+        audioFileNames = sortedAudioFileNames;
+    }
+
+    // The index of the first segment starting at or after offset, or size() if
+    // there is none. The table must be sorted by offset.
+    public int lowerBound(long offset) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (offsets[middle] < offset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void mergeSort(int[] order, int[] scratch, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(order, scratch, from, middle);
+        mergeSort(order, scratch, middle, to);
+        if (offsets[order[middle - 1]] <= offsets[order[middle]]) {
+            // Already in order, as segments of one file usually are.
+            return;
+        }
+        System.arraycopy(order, from, scratch, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && offsets[scratch[left]] <= offsets[scratch[right]])) {
+                order[i] = scratch[left++];
+            } else {
+                order[i] = scratch[right++];
+            }
+        }
+    }
+
+    private int intern(String text) {
+        if (text == null) {
+            return NO_TEXT;
+        }
+        Integer index = poolIndexes.get(text);
+        if (index == null) {
+            index = pool.size();
+            pool.add(text);
+            poolIndexes.put(text, index);
+        }
+        return index;
+    }
+
+    private String text(int index) {
+        return index == NO_TEXT ? null : pool.get(index);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Segment " + index + " of " + size);
+        }
+    }
+}
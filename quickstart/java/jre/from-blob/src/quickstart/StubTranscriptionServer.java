@@ -0,0 +1,227 @@
+package quickstart;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.stream.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+// Local stand-in for the batch transcription REST API, to run the client
+// against thousands of recordings without a subscription.
+//
+// A transcription is NotStarted for the first quarter of its duration, then
+// Running, then Succeeded. Its result has the configured number of segments,
+// written as it is sent, so large results do not need memory on the server.
+// The collection lists transcriptions oldest first, in pages given by the skip
+// and top query parameters, and status responses of unfinished transcriptions
+// can carry a Retry-After header.
+public class StubTranscriptionServer implements AutoCloseable {
+    private static final String TRANSCRIPTIONS_PATH = "/api/speechtotext/v2.0/Transcriptions/";
+    private static final String RESULTS_PATH = "/results/";
+
+    private final long transcriptionMillis;
+    private final int segmentsPerResult;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, Long> createdNanos = new ConcurrentHashMap<>();
+    private final List<String> ids = new CopyOnWriteArrayList<>();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong statusRequestCount = new AtomicLong();
+    private final AtomicLong listRequestCount = new AtomicLong();
+    private volatile int retryAfterSeconds;
+
+    // Listens on a free port of the loopback interface.
+    public StubTranscriptionServer(long transcriptionMillis, int segmentsPerResult) throws IOException {
+        this.transcriptionMillis = transcriptionMillis;
+        this.segmentsPerResult = segmentsPerResult;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.executor = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+        server.setExecutor(executor);
+        server.createContext(TRANSCRIPTIONS_PATH, this::handleTranscriptions);
+        server.createContext(RESULTS_PATH, this::handleResult);
+        server.start();
+    }
+
+    public URI getServiceUri() {
+        InetSocketAddress address = server.getAddress();
+        return URI.create("http://" + address.getHostString() + ":" + address.getPort() + TRANSCRIPTIONS_PATH);
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    // GET requests for the status of a single transcription.
+    public long getStatusRequestCount() {
+        return statusRequestCount.get();
+    }
+
+    // GET requests for a page of the collection.
+    public long getListRequestCount() {
+        return listRequestCount.get();
+    }
+
+    // 0, the default, for no Retry-After header.
+    public void setRetryAfterSeconds(int retryAfterSeconds) {
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handleTranscriptions(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        try (InputStream body = exchange.getRequestBody()) {
+            body.readAllBytes();
+        }
+        String id = exchange.getRequestURI().getPath().substring(TRANSCRIPTIONS_PATH.length());
+
+        if (exchange.getRequestMethod().equals("POST") && id.isEmpty()) {
+            String newId = UUID.randomUUID().toString();
+            createdNanos.put(newId, System.nanoTime());
+            ids.add(newId);
+            exchange.getResponseHeaders().add("Location", getServiceUri().resolve(newId).toString());
+            exchange.sendResponseHeaders(202, -1);
+        } else if (exchange.getRequestMethod().equals("GET") && id.isEmpty()) {
+            listRequestCount.incrementAndGet();
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            int skip = Integer.parseInt(query.getOrDefault("skip", "0"));
+            int top = Integer.parseInt(query.getOrDefault("top", "100"));
+            List<String> all = List.copyOf(ids);
+            List<String> page = all.subList(Math.min(skip, all.size()), Math.min(skip + top, all.size()));
+            sendJson(exchange, writer -> {
+                writer.beginArray();
+                for (String transcriptionId : page) {
+                    writeTranscription(writer, transcriptionId);
+                }
+                writer.endArray();
+            });
+        } else if (exchange.getRequestMethod().equals("GET") && createdNanos.containsKey(id)) {
+            statusRequestCount.incrementAndGet();
+            if (retryAfterSeconds > 0 && !statusOf(id).equals("Succeeded")) {
+                exchange.getResponseHeaders().add("Retry-After", Integer.toString(retryAfterSeconds));
+            }
+            sendJson(exchange, writer -> writeTranscription(writer, id));
+        } else {
+            exchange.sendResponseHeaders(404, -1);
+        }
+        exchange.close();
+    }
+
+    private void handleResult(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        String id = exchange.getRequestURI().getPath().substring(RESULTS_PATH.length());
+        if (!exchange.getRequestMethod().equals("GET") || !createdNanos.containsKey(id)) {
+            exchange.sendResponseHeaders(404, -1);
+        } else {
+            sendJson(exchange, writer -> writeResult(writer, id));
+        }
+        exchange.close();
+    }
+
+    private interface JsonBody {
+        void write(JsonWriter writer) throws IOException;
+    }
+
+    private static void sendJson(HttpExchange exchange, JsonBody body) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream stream = exchange.getResponseBody();
+        try (Writer out = new OutputStreamWriter(stream, StandardCharsets.UTF_8);
+             JsonWriter writer = new JsonWriter(out)) {
+            body.write(writer);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                int equals = parameter.indexOf('=');
+                if (equals > 0) {
+                    parameters.put(parameter.substring(0, equals), parameter.substring(equals + 1));
+                }
+            }
+        }
+        return parameters;
+    }
+
+    private String statusOf(String id) {
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - createdNanos.get(id));
+        if (elapsedMillis >= transcriptionMillis) {
+            return "Succeeded";
+        }
+        return elapsedMillis < transcriptionMillis / 4 ? "NotStarted" : "Running";
+    }
+
+    private void writeTranscription(JsonWriter writer, String id) throws IOException {
+        String status = statusOf(id);
+        writer.beginObject();
+        writer.name("id").value(id);
+        writer.name("name").value("Stub transcription");
+        writer.name("locale").value("en-US");
+        writer.name("status").value(status);
+        writer.name("statusMessage").value("");
+        if (status.equals("Succeeded")) {
+            writer.name("resultsUrls").beginObject();
+            writer.name("channel_0").value(getServiceUri().resolve(RESULTS_PATH + id).toString());
+            writer.endObject();
+        }
+        writer.endObject();
+    }
+
+    private void writeResult(JsonWriter writer, String id) throws IOException {
+        writer.beginObject();
+        writer.name("AudioFileResults").beginArray();
+        writer.beginObject();
+        writer.name("AudioFileName").value(id + ".wav");
+        writer.name("SegmentResults").beginArray();
+        long offset = 0;
+        for (int i = 0; i < segmentsPerResult; i++) {
+            // Ticks of 100 ns, 3 seconds per segment.
+            long duration = 30000000L;
+            String text = "This is segment " + i + " of the stub transcription.";
+            String lexical = text.toLowerCase().replaceAll("[^a-z0-9 ]", "");
+            writer.beginObject();
+            writer.name("RecognitionStatus").value("Success");
+            writer.name("Offset").value(Long.toString(offset));
+            writer.name("Duration").value(Long.toString(duration));
+            writer.name("NBest").beginArray();
+            writer.beginObject();
+            writer.name("Confidence").value(0.9);
+            writer.name("Lexical").value(lexical);
+            writer.name("ITN").value(lexical);
+            writer.name("MaskedITN").value(lexical);
+            writer.name("Display").value(text);
+            writer.endObject();
+            writer.endArray();
+            writer.endObject();
+            offset += duration;
+        }
+        writer.endArray();
+        writer.endObject();
+        writer.endArray();
+        writer.endObject();
+    }
+}
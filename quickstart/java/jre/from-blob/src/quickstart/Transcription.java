@@ -0,0 +1,19 @@
+package quickstart;
+
+import java.net.URL;
+import java.util.Date;
+import java.util.Hashtable;
+import java.util.UUID;
+
+public final class Transcription {
+    public String name;
+    public String description;
+    public String locale;
+    public URL recordingsUrl;
+    public Hashtable<String, String> resultsUrls;
+    public UUID id;
+    public Date createdDateTime;
+    public Date lastActionDateTime;
+    public String status;
+    public String statusMessage;
+}
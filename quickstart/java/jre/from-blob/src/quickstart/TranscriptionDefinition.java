@@ -0,0 +1,36 @@
+package quickstart;
+
+import java.net.URL;
+import java.util.Dictionary;
+import java.util.Hashtable;
+
+public final class TranscriptionDefinition {
+    private TranscriptionDefinition(String name, String description, String locale, URL recordingsUrl,
+            ModelIdentity[] models) {
+        this.Name = name;
+        this.Description = description;
+        this.RecordingsUrl = recordingsUrl;
+        this.Locale = locale;
+        this.Models = models;
+        this.properties = new Hashtable<String, String>();
+        this.properties.put("PunctuationMode", "DictatedAndAutomatic");
+        this.properties.put("ProfanityFilterMode", "Masked");
+        this.properties.put("AddWordLevelTimestamps", "True");
+    }
+
+    public String Name;
+    public String Description;
+    public URL RecordingsUrl;
+    public String Locale;
+    public ModelIdentity[] Models;
+    public Dictionary<String, String> properties;
+
+    public static TranscriptionDefinition Create(String name, String description, String locale, URL recordingsUrl) {
+        return TranscriptionDefinition.Create(name, description, locale, recordingsUrl, new ModelIdentity[0]);
+    }
+
+    public static TranscriptionDefinition Create(String name, String description, String locale, URL recordingsUrl,
+            ModelIdentity[] models) {
+        return new TranscriptionDefinition(name, description, locale, recordingsUrl, models);
+    }
+}
@@ -0,0 +1,259 @@
+package quickstart;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Waits for many transcriptions from one scheduler thread.
+//
+// Every transcription is checked on its own schedule: first after the initial
+// interval, then after intervals growing by the backoff multiplier up to the
+// maximum, each shortened by a random jitter so that transcriptions submitted
+// together do not keep polling together. A Retry-After header on a status
+// response, including on 429 and 503 answers, postpones the next check of that
+// transcription accordingly.
+//
+// When listing is enabled, due transcriptions are not checked one by one: one
+// sweep lists the collection in pages and updates every watched transcription
+// it finds, whether due or not, so N transcriptions cost a few pages per sweep
+// rather than N requests. Transcriptions missing from a complete listing, and
+// due transcriptions when listing fails for other reasons than throttling, are
+// checked individually.
+final class TranscriptionPoller {
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final int HTTP_UNAVAILABLE = 503;
+
+    private final BatchTranscriptionClient client;
+    private final BatchTranscriptionClient.Config config;
+    private final ScheduledExecutorService scheduler;
+    // Jobs by transcription id.
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    // Guarded by this.
+    private ScheduledFuture<?> sweep;
+    private long sweepDueNanos = Long.MAX_VALUE;
+    private boolean sweeping;
+
+    private final class Job {
+        final URI location;
+        final String id;
+        final CompletableFuture<Transcription> result = new CompletableFuture<>();
+        // Guarded by the poller.
+        int attempts;
+        long dueNanos;
+
+        Job(URI location) {
+            this.location = location;
+            String path = location.getPath();
+            this.id = path.substring(path.lastIndexOf('/') + 1);
+        }
+    }
+
+    TranscriptionPoller(BatchTranscriptionClient client, BatchTranscriptionClient.Config config,
+            ScheduledExecutorService scheduler) {
+        this.client = client;
+        this.config = config;
+        this.scheduler = scheduler;
+    }
+
+    CompletableFuture<Transcription> watch(URI location) {
+        Job job = new Job(location);
+        long delayNanos = nextDelayNanos(job, 0);
+        if (!config.isListTranscriptions()) {
+            scheduler.schedule(() -> check(job), delayNanos, TimeUnit.NANOSECONDS);
+            return job.result;
+        }
+
+        jobs.put(job.id, job);
+        job.result.whenComplete((t, e) -> jobs.remove(job.id, job));
+        synchronized (this) {
+            job.dueNanos = System.nanoTime() + delayNanos;
+            scheduleSweep(job.dueNanos);
+        }
+        return job.result;
+    }
+
+    // Checks the status of a single transcription.
+    private void check(Job job) {
+        client.sendAsync(client.newRequest(job.location).GET().build()).whenComplete((response, error) -> {
+            if (error != null) {
+                job.result.completeExceptionally(BatchTranscriptionClient.unwrap(error));
+                return;
+            }
+            try (InputStream body = response.body()) {
+                long retryAfterNanos = retryAfterNanos(response);
+                int status = response.statusCode();
+                if (status == HTTP_TOO_MANY_REQUESTS || status == HTTP_UNAVAILABLE) {
+                    scheduler.schedule(() -> check(job), nextDelayNanos(job, retryAfterNanos), TimeUnit.NANOSECONDS);
+                    return;
+                }
+                if (status != 200) {
+                    throw new BatchTranscriptionException("GET " + job.location + " returned unexpected http code", status);
+                }
+                Transcription transcription = client.parse(body, Transcription.class);
+                if (!complete(job, transcription)) {
+                    scheduler.schedule(() -> check(job), nextDelayNanos(job, retryAfterNanos), TimeUnit.NANOSECONDS);
+                }
+            } catch (IOException | RuntimeException e) {
+                job.result.completeExceptionally(e);
+            }
+        });
+    }
+
+    // Runs on the scheduler when the earliest job is due.
+    private void sweep() {
+        synchronized (this) {
+            sweep = null;
+            sweepDueNanos = Long.MAX_VALUE;
+            if (jobs.isEmpty()) {
+                return;
+            }
+            sweeping = true;
+        }
+        Map<String, Job> unseen = new HashMap<>(jobs);
+        listPage(0, unseen, 0);
+    }
+
+    private void listPage(int skip, Map<String, Job> unseen, long retryAfterNanos) {
+        int top = config.getListPageSize();
+        URI page = config.getServiceUri().resolve("?skip=" + skip + "&top=" + top);
+        client.sendAsync(client.newRequest(page).GET().build()).whenComplete((response, error) -> {
+            if (error != null) {
+                endSweep(unseen, SweepEnd.FAILED, 0);
+                return;
+            }
+            try (InputStream body = response.body()) {
+                long pageRetryAfterNanos = Math.max(retryAfterNanos, retryAfterNanos(response));
+                int status = response.statusCode();
+                if (status == HTTP_TOO_MANY_REQUESTS || status == HTTP_UNAVAILABLE) {
+                    endSweep(unseen, SweepEnd.THROTTLED, pageRetryAfterNanos);
+                    return;
+                }
+                if (status != 200) {
+                    endSweep(unseen, SweepEnd.FAILED, 0);
+                    return;
+                }
+                Transcription[] transcriptions = client.parse(body, Transcription[].class);
+                int count = transcriptions == null ? 0 : transcriptions.length;
+                for (int i = 0; i < count; i++) {
+                    Transcription transcription = transcriptions[i];
+                    Job job = transcription.id == null ? null : unseen.remove(transcription.id.toString());
+                    if (job != null) {
+                        complete(job, transcription);
+                    }
+                }
+                if (count == top && !unseen.isEmpty()) {
+                    listPage(skip + count, unseen, pageRetryAfterNanos);
+                } else {
+                    endSweep(unseen, SweepEnd.LISTED_ALL, pageRetryAfterNanos);
+                }
+            } catch (IOException | RuntimeException e) {
+                endSweep(unseen, SweepEnd.FAILED, 0);
+            }
+        });
+    }
+
+    private enum SweepEnd {
+        LISTED_ALL, THROTTLED, FAILED
+    }
+
+    // Reschedules the jobs the sweep saw running; checks those it could not find one by one.
+    private void endSweep(Map<String, Job> unseen, SweepEnd end, long retryAfterNanos) {
+        List<Job> missing = new ArrayList<>();
+        synchronized (this) {
+            sweeping = false;
+            long now = System.nanoTime();
+            long earliest = Long.MAX_VALUE;
+            for (Job job : jobs.values()) {
+                if (job.result.isDone()) {
+                    continue;
+                }
+                boolean missed = end == SweepEnd.LISTED_ALL
+                        ? unseen.containsKey(job.id)
+                        : end == SweepEnd.FAILED && job.dueNanos <= now;
+                if (missed) {
+                    jobs.remove(job.id, job);
+                    missing.add(job);
+                    continue;
+                }
+                if (job.dueNanos <= now || retryAfterNanos > 0) {
+                    job.dueNanos = now + nextDelayNanos(job, retryAfterNanos);
+                }
+                earliest = Math.min(earliest, job.dueNanos);
+            }
+            if (earliest != Long.MAX_VALUE) {
+                scheduleSweep(earliest);
+            }
+        }
+        for (Job job : missing) {
+            check(job);
+        }
+    }
+
+    // Called with the lock held.
+    private void scheduleSweep(long dueNanos) {
+        if (sweeping || dueNanos >= sweepDueNanos) {
+            return;
+        }
+        if (sweep != null) {
+            sweep.cancel(false);
+        }
+        sweepDueNanos = dueNanos;
+        sweep = scheduler.schedule(this::sweep, Math.max(0, dueNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    private static boolean complete(Job job, Transcription transcription) {
+        switch (String.valueOf(transcription.status)) {
+        case "Succeeded":
+            job.result.complete(transcription);
+            return true;
+        case "Failed":
+            job.result.completeExceptionally(new IOException("Transcription has failed: " + transcription.statusMessage));
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    // Exponential backoff with jitter, never shorter than Retry-After.
+    private long nextDelayNanos(Job job, long retryAfterNanos) {
+        double interval = config.getInitialPollIntervalMillis()
+                * Math.pow(config.getPollBackoffMultiplier(), Math.min(job.attempts, 64));
+        job.attempts++;
+        interval = Math.min(interval, config.getMaxPollIntervalMillis());
+        interval *= 1 - config.getPollJitter() * ThreadLocalRandom.current().nextDouble();
+        return Math.max(TimeUnit.MILLISECONDS.toNanos((long) interval), retryAfterNanos);
+    }
+
+    // Retry-After as seconds or as an HTTP date; 0 if absent or invalid.
+    static long retryAfterNanos(HttpResponse<?> response) {
+        String value = response.headers().firstValue("Retry-After").orElse(null);
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return TimeUnit.SECONDS.toNanos(Math.max(0, Long.parseLong(value.trim())));
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime date = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, Duration.between(ZonedDateTime.now(date.getZone()), date).toNanos());
+            } catch (DateTimeParseException ex) {
+                return 0;
+            }
+        }
+    }
+}
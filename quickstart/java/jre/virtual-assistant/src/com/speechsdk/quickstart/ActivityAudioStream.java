@@ -7,7 +7,6 @@ package com.speechsdk.quickstart;
 
 import com.microsoft.cognitiveservices.speech.audio.PullAudioOutputStream;
 
-import java.io.IOException;
 import java.io.InputStream;
 
 /**
@@ -37,6 +36,10 @@ public final class ActivityAudioStream extends InputStream {
     /**
      * Reads up to a specified maximum number of bytes of data from the audio
      * stream, putting them into the given byte array.
+     * <p>
+     * Buffered audio is returned first. Otherwise, when the whole array is requested, the audio is read
+     * straight into it; any other request goes through the fixed-size internal buffer of the stream and
+     * may return fewer bytes than requested. No memory is allocated.
      *
      * @param b   the buffer into which the data is read
      * @param off the offset, from the beginning of array <code>b</code>, at which
@@ -47,22 +50,39 @@ public final class ActivityAudioStream extends InputStream {
      */
     @Override
     public int read(byte[] b, int off, int len) {
-        byte[] tempBuffer = new byte[len];
-        int n = (int) this.pullStreamImpl.read(tempBuffer);
-        for (int i = 0; i < n; i++) {
-            if (off + i > b.length) {
-                throw new ArrayIndexOutOfBoundsException(b.length);
-            }
-            b[off + i] = tempBuffer[i];
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
         }
-        if (n == 0) {
-            return -1;
+        if (len == 0) {
+            return 0;
         }
+
+        if (bufferPosition == bufferLimit) {
+            if (endOfStream) {
+                return -1;
+            }
+            if (off == 0 && len == b.length) {
+                int n = (int) this.pullStreamImpl.read(b);
+                if (n <= 0) {
+                    endOfStream = true;
+                    return -1;
+                }
+                return n;
+            }
+            if (!fill()) {
+                return -1;
+            }
+        }
+
+        int n = Math.min(len, bufferLimit - bufferPosition);
+        System.arraycopy(buffer, bufferPosition, b, off, n);
+        bufferPosition += n;
         return n;
     }
 
     /**
      * Reads the next byte of data from the activity audio stream if available.
+     * The audio is read ahead into the internal buffer of the stream.
      *
      * @return the next byte of data, or -1 if the end of the stream is reached
      * @see #read(byte[], int, int)
@@ -72,13 +92,10 @@ public final class ActivityAudioStream extends InputStream {
      */
     @Override
     public int read() {
-        byte[] data = new byte[1];
-        int temp = read(data);
-        if (temp <= 0) {
-            // we have a weird situation if read(byte[]) returns 0!
+        if (bufferPosition == bufferLimit && (endOfStream || !fill())) {
             return -1;
         }
-        return data[0] & 0xFF;
+        return buffer[bufferPosition++] & 0xFF;
     }
 
     /**
@@ -91,39 +108,52 @@ public final class ActivityAudioStream extends InputStream {
      */
     @Override
     public int read(byte[] b) {
-        int n = (int) pullStreamImpl.read(b);
-        if (n == 0) {
-            return -1;
-        }
-        return n;
+        return read(b, 0, b.length);
     }
 
     /**
      * Skips over and discards a specified number of bytes from this
-     * audio input stream.
+     * audio input stream. The audio is discarded through the internal buffer of the stream,
+     * so skipping does not allocate memory however far it goes.
      *
      * @param n the requested number of bytes to be skipped
-     * @return the actual number of bytes skipped
-     * @throws IOException if an input or output error occurs
+     * @return the actual number of bytes skipped, less than requested only at the end of the stream
      * @see #read
      * @see #available
+     * @see #skipMillis
      */
     @Override
     public long skip(long n) {
-        if (n <= 0) {
-            return 0;
-        }
-        if (n <= Integer.MAX_VALUE) {
-            byte[] tempBuffer = new byte[(int) n];
-            return read(tempBuffer);
+        long skipped = 0;
+        while (skipped < n) {
+            if (bufferPosition == bufferLimit && (endOfStream || !fill())) {
+                break;
+            }
+            int count = (int) Math.min(n - skipped, bufferLimit - bufferPosition);
+            bufferPosition += count;
+            skipped += count;
         }
-        long count = 0;
-        for (long i = n; i > 0; i -= Integer.MAX_VALUE) {
-            int size = (int) Math.min(Integer.MAX_VALUE, i);
-            byte[] tempBuffer = new byte[size];
-            count += read(tempBuffer);
+        return skipped;
+    }
+
+    /**
+     * Skips over and discards a specified duration of audio from this audio input stream,
+     * e.g. to resume playback of a long response at a later position.
+     *
+     * @param millis the requested duration to be skipped, in milliseconds
+     * @return the actual duration skipped in milliseconds, less than requested only at the end of the stream
+     * @see #skip
+     */
+    public long skipMillis(long millis) {
+        if (millis <= 0) {
+            return 0;
         }
-        return count;
+        long frameSize = activityAudioFormat.getFrameSize();
+        long bytesPerSecond = activityAudioFormat.getSamplesPerSecond() * frameSize;
+        // Whole frames only, so the stream stays aligned to samples.
+        long frames = millis * activityAudioFormat.getSamplesPerSecond() / 1000;
+        long skipped = skip(frames * frameSize);
+        return skipped * 1000 / bytesPerSecond;
     }
 
     /**
@@ -148,23 +178,89 @@ public final class ActivityAudioStream extends InputStream {
      * Returns the maximum number of bytes that can be read (or skipped over) from this
      * audio input stream without blocking.
      *
-     * @return the number of bytes that can be read from this audio input stream without blocking.
-     * As this implementation does not buffer this will be defaulted to 0
+     * @return the number of bytes that can be read from this audio input stream without blocking,
+     * which is the audio already read ahead into the internal buffer of the stream
      */
     @Override
     public int available() {
-        return 0;
+        return bufferLimit - bufferPosition;
     }
 
     public ActivityAudioStream(final PullAudioOutputStream stream) {
-        pullStreamImpl = stream;
+        this(new AudioSource() {
+            @Override
+            public long read(byte[] buffer) {
+                return stream.read(buffer);
+            }
+
+            @Override
+            public void close() {
+                stream.close();
+            }
+        });
+    }
+
+    /**
+     * Creates an activity audio stream over any source of 16 kHz, 16-bit mono PCM audio,
+     * e.g. audio recorded ahead of time for the benchmarks.
+     *
+     * @param source the source of the audio
+     */
+    ActivityAudioStream(final AudioSource source) {
+        pullStreamImpl = source;
         this.activityAudioFormat = new ActivityAudioStream.ActivityAudioFormat(SAMPLE_RATE, BITS_PER_SECOND, CHANNELS, FRAME_SIZE, AudioEncoding.PCM_SIGNED);
     }
 
-    private PullAudioOutputStream pullStreamImpl;
+    private AudioSource pullStreamImpl;
+
+    /**
+     * The size of the internal buffer (100 ms of audio). Requests that cannot be read straight into the
+     * caller's array are served from it, at most this many bytes at a time.
+     */
+    private static final int BUFFER_SIZE = 3200;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int bufferPosition;
+    private int bufferLimit;
+    private boolean endOfStream;
+
+    /**
+     * Refills the empty internal buffer from the source.
+     *
+     * @return false at the end of the stream
+     */
+    private boolean fill() {
+        int n = (int) this.pullStreamImpl.read(buffer);
+        bufferPosition = 0;
+        bufferLimit = Math.max(0, n);
+        if (n <= 0) {
+            endOfStream = true;
+            return false;
+        }
+        return true;
+    }
 
     private ActivityAudioFormat activityAudioFormat;
 
+    /**
+     * AudioSource is where the activity audio comes from, the {@link PullAudioOutputStream}
+     * of the activity outside of benchmarks.
+     */
+    interface AudioSource {
+        /**
+         * Reads audio into the buffer, blocking until the buffer is full or the audio has ended.
+         *
+         * @param buffer the buffer into which the data is read
+         * @return the number of bytes read, or 0 at the end of the audio
+         */
+        long read(byte[] buffer);
+
+        /**
+         * Closes the source.
+         */
+        void close();
+    }
+
     /**
      * ActivityAudioFormat is an internal format which contains metadata regarding the type of arrangement of
      * audio bits in this activity audio stream.
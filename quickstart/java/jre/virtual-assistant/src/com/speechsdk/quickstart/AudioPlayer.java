@@ -0,0 +1,201 @@
+/**
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE.md file in the project root for full license information.
+ */
+package com.speechsdk.quickstart;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plays an audio stream on a {@link SourceDataLine} through a double-buffered pipeline.
+ * <p>
+ * A producer thread pulls the audio in blocks of half the target latency into a small pool of
+ * reusable buffers, while the calling thread writes the filled blocks to a line whose buffer holds
+ * the target latency. A slow read from the service therefore does not stall the line as long as
+ * a block is queued, and no memory is allocated per block. Whenever the line ran dry before the end
+ * of the stream, an underrun is counted.
+ */
+public final class AudioPlayer {
+    /**
+     * The number of blocks in the buffer pool: one being filled, one being played and two queued.
+     */
+    private static final int POOL_SIZE = 4;
+
+    private final SourceDataLine line;
+    private final long targetLatencyMillis;
+    private final AtomicLong underrunCount = new AtomicLong();
+    private final AtomicLong bytesPlayed = new AtomicLong();
+
+    /**
+     * Creates a player for the given line.
+     *
+     * @param line                the line to play on, opened by {@link #play}
+     * @param targetLatencyMillis the audio buffered in the line, in milliseconds. Lower values start
+     *                            and stop faster, higher values are more robust against slow reads
+     */
+    public AudioPlayer(final SourceDataLine line, final long targetLatencyMillis) {
+        if (targetLatencyMillis <= 0) {
+            throw new IllegalArgumentException("targetLatencyMillis must be positive");
+        }
+        this.line = line;
+        this.targetLatencyMillis = targetLatencyMillis;
+    }
+
+    /**
+     * Plays the stream to its end, then drains and closes the line and closes the stream.
+     *
+     * @param stream the audio to play
+     * @param format the format of the audio
+     * @throws LineUnavailableException if the line cannot be opened
+     * @throws IOException              if reading the stream fails; unchecked failures of the stream are
+     *                                  wrapped in an IOException
+     * @throws InterruptedException     if the calling thread is interrupted
+     */
+    public void play(final InputStream stream, final AudioFormat format)
+            throws LineUnavailableException, IOException, InterruptedException {
+        final int frameSize = Math.max(1, format.getFrameSize());
+        final long bytesPerSecond = (long) (format.getFrameRate() * frameSize);
+        // Whole frames, at least one per block.
+        final int blockSize = (int) Math.max(frameSize, bytesPerSecond * targetLatencyMillis / 2000 / frameSize * frameSize);
+
+        final BlockingQueue<Block> free = new ArrayBlockingQueue<>(POOL_SIZE);
+        final BlockingQueue<Block> filled = new ArrayBlockingQueue<>(POOL_SIZE + 1);
+        for (int i = 0; i < POOL_SIZE; i++) {
+            free.add(new Block(blockSize));
+        }
+
+        final Producer producer = new Producer(stream, free, filled);
+        final Thread producerThread = new Thread(producer, "audio-player-producer");
+        producerThread.setDaemon(true);
+        producerThread.start();
+
+        try {
+            line.open(format, 2 * blockSize);
+            boolean started = false;
+            while (true) {
+                Block block = filled.poll();
+                if (block == null) {
+                    block = filled.take();
+                    // The line played everything written while waiting for the block: the listener heard a gap.
+                    if (started && block != Block.END && line.available() >= line.getBufferSize()) {
+                        underrunCount.incrementAndGet();
+                    }
+                }
+                if (block == Block.END) {
+                    break;
+                }
+
+                line.write(block.data, 0, block.length);
+                bytesPlayed.addAndGet(block.length);
+                free.put(block);
+                if (!started) {
+                    line.start();
+                    started = true;
+                }
+            }
+            line.drain();
+            line.stop();
+        } finally {
+            producerThread.interrupt();
+            line.close();
+            stream.close();
+        }
+
+        final Throwable error = producer.error;
+        if (error instanceof IOException) {
+            throw (IOException) error;
+        }
+        if (error != null) {
+            throw new IOException("Reading the audio stream failed", error);
+        }
+    }
+
+    /**
+     * Fetch the number of times the line ran dry before the end of the audio, over all calls to {@link #play}.
+     *
+     * @return the number of underruns
+     */
+    public long getUnderrunCount() {
+        return underrunCount.get();
+    }
+
+    /**
+     * Fetch the number of bytes written to the line, over all calls to {@link #play}.
+     *
+     * @return the number of bytes played
+     */
+    public long getBytesPlayed() {
+        return bytesPlayed.get();
+    }
+
+    /**
+     * A reusable buffer of audio.
+     */
+    private static final class Block {
+        /**
+         * Marks the end of the stream in the queue of filled blocks.
+         */
+        static final Block END = new Block(0);
+
+        final byte[] data;
+        int length;
+
+        Block(final int size) {
+            data = new byte[size];
+        }
+    }
+
+    /**
+     * Fills free blocks from the stream and queues them for playback.
+     */
+    private static final class Producer implements Runnable {
+        private final InputStream stream;
+        private final BlockingQueue<Block> free;
+        private final BlockingQueue<Block> filled;
+        volatile Throwable error;
+
+        Producer(final InputStream stream, final BlockingQueue<Block> free, final BlockingQueue<Block> filled) {
+            this.stream = stream;
+            this.free = free;
+            this.filled = filled;
+        }
+
+        @Override
+        public void run() {
+            try {
+                boolean endOfStream = false;
+                while (!endOfStream) {
+                    final Block block = free.take();
+                    block.length = 0;
+                    while (block.length < block.data.length) {
+                        final int n = stream.read(block.data, block.length, block.data.length - block.length);
+                        if (n < 0) {
+                            endOfStream = true;
+                            break;
+                        }
+                        block.length += n;
+                    }
+                    if (block.length > 0) {
+                        filled.put(block);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Playback was abandoned.
+            } catch (Throwable e) {
+                // Any failure, e.g. a RuntimeException from the SDK, is reported by play().
+                error = e;
+            } finally {
+                // Always end the playback loop. The queue has room for the marker: at most POOL_SIZE
+                // blocks are queued.
+                filled.offer(Block.END);
+            }
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE.md file in the project root for full license information.
+ */
+package com.speechsdk.quickstart;
+
+import com.microsoft.cognitiveservices.speech.dialog.DialogServiceConnector;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One conversation of a {@link DialogSessionManager}: a connector together with the state of its turns.
+ * <p>
+ * The manager routes the events of the connector to its session, so sessions share nothing but the manager's
+ * threads and statistics. Sessions are created by {@link DialogSessionManager#open} and closed by
+ * {@link #close()} or, once idle for too long, by the manager.
+ */
+public final class DialogSession implements AutoCloseable {
+    private final String id;
+    private final DialogServiceConnector connector;
+    private final DialogSessionManager manager;
+    private final TurnTracker turnTracker = new TurnTracker();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile long lastActivityNanos = System.nanoTime();
+    private volatile long turnStartNanos;
+    // Activities received and not yet handled and played.
+    private final AtomicInteger queuedActivities = new AtomicInteger();
+    // The last task of each lane. Tasks of a lane run one after the other, on the manager's shared threads.
+    private CompletableFuture<Void> activityLane = CompletableFuture.completedFuture(null);
+    private CompletableFuture<Void> playbackLane = CompletableFuture.completedFuture(null);
+
+    DialogSession(final String id, final DialogServiceConnector connector, final DialogSessionManager manager) {
+        this.id = id;
+        this.connector = connector;
+        this.manager = manager;
+    }
+
+    /**
+     * Fetch the identifier of the session, unique within its manager.
+     *
+     * @return the session identifier
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Fetch the connector of the session.
+     *
+     * @return the connector
+     */
+    public DialogServiceConnector getConnector() {
+        return connector;
+    }
+
+    /**
+     * Starts a turn: listens once and returns the future of its outcome, completed by the session's event listeners.
+     * Wait on the future with a timeout; a turn that never ends is superseded by the next one.
+     *
+     * @return the future completed with the outcome of the turn
+     */
+    public CompletableFuture<TurnTracker.Outcome> listenOnce() {
+        if (closed.get()) {
+            throw new IllegalStateException("The session " + id + " is closed.");
+        }
+        touch();
+        turnStartNanos = System.nanoTime();
+        final CompletableFuture<TurnTracker.Outcome> turn = turnTracker.startTurn();
+        turn.whenComplete((outcome, e) -> manager.turnEnded(this, outcome));
+        // Errors of the request surface as canceled events, which end the turn.
+        connector.listenOnceAsync();
+        return turn;
+    }
+
+    /**
+     * Fetch whether a turn is in progress.
+     *
+     * @return true between {@link #listenOnce()} and the end of the turn
+     */
+    public boolean isTurnInProgress() {
+        return turnTracker.isTurnInProgress();
+    }
+
+    /**
+     * Fetch whether the session was closed, by the application or by the manager.
+     *
+     * @return true if the session is closed
+     */
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    /**
+     * Closes the connector and removes the session from its manager.
+     */
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            turnTracker.cancel();
+            manager.remove(this);
+            connector.close();
+        }
+    }
+
+    TurnTracker getTurnTracker() {
+        return turnTracker;
+    }
+
+    long getTurnStartNanos() {
+        return turnStartNanos;
+    }
+
+    long getLastActivityNanos() {
+        return lastActivityNanos;
+    }
+
+    /**
+     * Counts an activity as queued, unless the session already has the maximum queued.
+     *
+     * @return false if the activity must be dropped
+     */
+    boolean tryQueueActivity(final int maxQueuedActivities) {
+        while (true) {
+            final int queued = queuedActivities.get();
+            if (queued >= maxQueuedActivities) {
+                return false;
+            }
+            if (queuedActivities.compareAndSet(queued, queued + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Ends the count of an activity queued by {@link #tryQueueActivity}, once it was handled and played.
+     */
+    void activityDone() {
+        queuedActivities.decrementAndGet();
+    }
+
+    /**
+     * Runs a task after the activity tasks submitted before, so activities are handled in the order received.
+     */
+    synchronized void runOnActivityLane(final Runnable task, final Executor executor) {
+        activityLane = then(activityLane, task, executor);
+    }
+
+    /**
+     * Runs a task after the playback tasks submitted before, so responses are not played over each other.
+     */
+    synchronized void runOnPlaybackLane(final Runnable task, final Executor executor) {
+        playbackLane = then(playbackLane, task, executor);
+    }
+
+    private static CompletableFuture<Void> then(final CompletableFuture<Void> previous, final Runnable task,
+                                                final Executor executor) {
+        // Runs whether or not the previous task failed.
+        return previous.handleAsync((result, e) -> {
+            task.run();
+            return null;
+        }, executor);
+    }
+
+    /**
+     * Marks the session as active now, postponing its reaping.
+     */
+    void touch() {
+        lastActivityNanos = System.nanoTime();
+    }
+}
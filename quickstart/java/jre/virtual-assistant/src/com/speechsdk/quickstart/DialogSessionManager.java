@@ -0,0 +1,600 @@
+/**
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE.md file in the project root for full license information.
+ */
+package com.speechsdk.quickstart;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microsoft.cognitiveservices.speech.audio.PullAudioOutputStream;
+import com.microsoft.cognitiveservices.speech.dialog.DialogServiceConnector;
+import com.microsoft.cognitiveservices.speech.util.EventHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hosts many {@link DialogServiceConnector} conversations in one process.
+ * <p>
+ * Each connector opened through the manager becomes a {@link DialogSession} whose events are routed to that
+ * session only. The SDK's callback threads only hand received activities on: they are parsed with
+ * {@link ParsedActivity} and passed to an {@link ActivityHandler} on a shared, bounded pool of worker threads,
+ * and their audio is played on a second pool, so neither a large activity nor a long response delays the
+ * events that follow. Both stages keep the order of the activities within a session, and the number of
+ * threads does not grow with the number of sessions. A session waits for at most
+ * {@link Config#getMaxQueuedActivities()} activities to be handled and played; activities beyond that are
+ * dropped and counted, so a slow session never makes the SDK's callback thread do the work. Sessions without
+ * any event for {@link Config#getIdleTimeoutMillis()} are closed.
+ * <p>
+ * The manager counts active sessions, completed turns, turns per second, the latency of answered turns, from
+ * the start of listening until the response was handled and played, and the time spent on callback threads.
+ */
+public final class DialogSessionManager implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(DialogSessionManager.class);
+
+    /**
+     * Handles the activities received by the sessions of a manager.
+     */
+    public interface ActivityHandler {
+        /**
+         * Handles an activity, for example by showing its text. Runs on a worker thread of the manager.
+         *
+         * @param session  the session that received the activity
+         * @param activity the received activity
+         * @return true if the activity answers the turn, which ends the turn once its audio was played
+         * @throws Exception if handling failed; the turn stays open and the audio is not played
+         */
+        boolean onActivity(DialogSession session, ParsedActivity activity) throws Exception;
+
+        /**
+         * Plays the audio of an activity. Runs on a playback thread of the manager, after {@link #onActivity}.
+         * The handler owns the audio from now on and must close it, also when playback fails. The default
+         * implementation closes it without playing it.
+         *
+         * @param session  the session that received the activity
+         * @param activity the received activity
+         * @param audio    the audio of the activity
+         * @throws Exception if playback failed
+         */
+        default void onAudio(final DialogSession session, final ParsedActivity activity,
+                             final PullAudioOutputStream audio) throws Exception {
+            audio.close();
+        }
+    }
+
+    /**
+     * Settings of a {@link DialogSessionManager}.
+     */
+    public static final class Config {
+        private int workerThreads = Math.max(2, Runtime.getRuntime().availableProcessors() * 2);
+        private int playbackThreads = Math.max(2, Runtime.getRuntime().availableProcessors() * 2);
+        private int maxQueuedActivities = 256;
+        private ObjectMapper objectMapper;
+        private long idleTimeoutMillis = TimeUnit.MINUTES.toMillis(5);
+        private long housekeepingIntervalMillis = TimeUnit.SECONDS.toMillis(1);
+
+        /**
+         * Fetch the number of threads handling activities, shared by all sessions.
+         *
+         * @return the number of worker threads
+         */
+        public int getWorkerThreads() {
+            return workerThreads;
+        }
+
+        /**
+         * Sets the number of threads handling activities, shared by all sessions.
+         *
+         * @param workerThreads the number of worker threads
+         */
+        public void setWorkerThreads(final int workerThreads) {
+            this.workerThreads = workerThreads;
+        }
+
+        /**
+         * Fetch the number of threads playing audio, shared by all sessions.
+         *
+         * @return the number of playback threads
+         */
+        public int getPlaybackThreads() {
+            return playbackThreads;
+        }
+
+        /**
+         * Sets the number of threads playing audio, shared by all sessions. Playback occupies a thread for the
+         * length of the response, so allow for the number of responses played at the same time.
+         *
+         * @param playbackThreads the number of playback threads
+         */
+        public void setPlaybackThreads(final int playbackThreads) {
+            this.playbackThreads = playbackThreads;
+        }
+
+        /**
+         * Fetch the mapper used to parse activities.
+         *
+         * @return the mapper, or null for a mapper ignoring unknown properties
+         */
+        public ObjectMapper getObjectMapper() {
+            return objectMapper;
+        }
+
+        /**
+         * Sets the mapper used to parse activities and to bind them by {@link ParsedActivity#toActivity()}.
+         *
+         * @param objectMapper the mapper, or null for a mapper ignoring unknown properties
+         */
+        public void setObjectMapper(final ObjectMapper objectMapper) {
+            this.objectMapper = objectMapper;
+        }
+
+        /**
+         * Fetch the number of activities a session may have waiting to be handled or played.
+         *
+         * @return the activities queued per session
+         */
+        public int getMaxQueuedActivities() {
+            return maxQueuedActivities;
+        }
+
+        /**
+         * Sets the number of activities a session may have waiting to be handled or played. Activities received
+         * while that many are waiting are dropped and counted by {@link DialogSessionManager#getDroppedActivityCount()}.
+         *
+         * @param maxQueuedActivities the activities queued per session
+         */
+        public void setMaxQueuedActivities(final int maxQueuedActivities) {
+            this.maxQueuedActivities = maxQueuedActivities;
+        }
+
+        /**
+         * Fetch the time without events after which a session is closed.
+         *
+         * @return the idle timeout in milliseconds, 0 to keep sessions open
+         */
+        public long getIdleTimeoutMillis() {
+            return idleTimeoutMillis;
+        }
+
+        /**
+         * Sets the time without events after which a session is closed.
+         *
+         * @param idleTimeoutMillis the idle timeout in milliseconds, 0 to keep sessions open
+         */
+        public void setIdleTimeoutMillis(final long idleTimeoutMillis) {
+            this.idleTimeoutMillis = idleTimeoutMillis;
+        }
+
+        /**
+         * Fetch how often idle sessions are reaped and the turn rate is updated.
+         *
+         * @return the interval in milliseconds
+         */
+        public long getHousekeepingIntervalMillis() {
+            return housekeepingIntervalMillis;
+        }
+
+        /**
+         * Sets how often idle sessions are reaped and the turn rate is updated.
+         *
+         * @param housekeepingIntervalMillis the interval in milliseconds
+         */
+        public void setHousekeepingIntervalMillis(final long housekeepingIntervalMillis) {
+            this.housekeepingIntervalMillis = housekeepingIntervalMillis;
+        }
+    }
+
+    private final long idleTimeoutNanos;
+    private final int maxQueuedActivities;
+    private final ActivityHandler activityHandler;
+    private final ConcurrentMap<String, DialogSession> sessions = new ConcurrentHashMap<>();
+    private final ObjectMapper mapper;
+    private final ThreadPoolExecutor workers;
+    private final ThreadPoolExecutor players;
+    private final ScheduledExecutorService housekeeper;
+    private final AtomicLong turnCount = new AtomicLong();
+    private final AtomicLong reapedSessionCount = new AtomicLong();
+    private final AtomicLong droppedActivityCount = new AtomicLong();
+    // Audio of queued activities not handed to the ActivityHandler yet. Whoever removes a stream from the set
+    // owns it: the playback task passes it on, anything else closes it.
+    private final Set<PullAudioOutputStream> pendingAudio = ConcurrentHashMap.newKeySet();
+    private final LatencyRecorder turnLatency = new LatencyRecorder("ms");
+    private final LatencyRecorder callbackTime = new LatencyRecorder("us");
+    private volatile double turnsPerSecond;
+    private long lastTurnCount;
+    private long lastRateNanos = System.nanoTime();
+
+    /**
+     * Creates a manager with default settings.
+     *
+     * @param activityHandler handles the activities received by all sessions
+     */
+    public DialogSessionManager(final ActivityHandler activityHandler) {
+        this(activityHandler, new Config());
+    }
+
+    /**
+     * Creates a manager.
+     *
+     * @param activityHandler handles the activities received by all sessions
+     * @param config          the settings; later changes have no effect
+     */
+    public DialogSessionManager(final ActivityHandler activityHandler, final Config config) {
+        if (config.getWorkerThreads() <= 0 || config.getPlaybackThreads() <= 0 || config.getMaxQueuedActivities() <= 0
+                || config.getHousekeepingIntervalMillis() <= 0) {
+            throw new IllegalArgumentException(
+                    "workerThreads, playbackThreads, maxQueuedActivities and housekeepingIntervalMillis must be positive");
+        }
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.getIdleTimeoutMillis());
+        this.maxQueuedActivities = config.getMaxQueuedActivities();
+        this.activityHandler = activityHandler;
+        this.mapper = config.getObjectMapper() != null
+                ? config.getObjectMapper()
+                : new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.workers = sharedPool(config.getWorkerThreads(), "dialog-worker");
+        this.players = sharedPool(config.getPlaybackThreads(), "dialog-playback");
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(daemonThreads("dialog-housekeeper"));
+        this.housekeeper.scheduleWithFixedDelay(this::housekeeping,
+                config.getHousekeepingIntervalMillis(), config.getHousekeepingIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Adds a connector to the manager. The manager registers its event listeners and owns the connector from now on.
+     * Connect the connector before the first turn.
+     *
+     * @param connector the connector of the new session
+     * @return the new session
+     */
+    public DialogSession open(final DialogServiceConnector connector) {
+        final DialogSession session = new DialogSession(UUID.randomUUID().toString(), connector, this);
+        registerEventListeners(session);
+        sessions.put(session.getId(), session);
+        return session;
+    }
+
+    /**
+     * Fetch an open session.
+     *
+     * @param id the session identifier
+     * @return the session, or null if there is no open session with this identifier
+     */
+    public DialogSession getSession(final String id) {
+        return sessions.get(id);
+    }
+
+    /**
+     * Fetch the open sessions.
+     *
+     * @return a snapshot of the open sessions
+     */
+    public Collection<DialogSession> getSessions() {
+        return new ArrayList<>(sessions.values());
+    }
+
+    /**
+     * Fetch the number of open sessions.
+     *
+     * @return the number of active sessions
+     */
+    public int getActiveSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Fetch the number of sessions closed for being idle.
+     *
+     * @return the number of reaped sessions
+     */
+    public long getReapedSessionCount() {
+        return reapedSessionCount.get();
+    }
+
+    /**
+     * Fetch the number of activities dropped because their session had too many activities queued.
+     *
+     * @return the number of dropped activities
+     */
+    public long getDroppedActivityCount() {
+        return droppedActivityCount.get();
+    }
+
+    /**
+     * Fetch the number of turns that ended, with any outcome.
+     *
+     * @return the number of turns
+     */
+    public long getTurnCount() {
+        return turnCount.get();
+    }
+
+    /**
+     * Fetch the rate at which turns ended during the last housekeeping interval.
+     *
+     * @return the turns per second
+     */
+    public double getTurnsPerSecond() {
+        return turnsPerSecond;
+    }
+
+    /**
+     * Fetch the latencies of answered turns, from the start of listening until the response was handled.
+     *
+     * @return the turn latencies
+     */
+    public LatencyRecorder getTurnLatency() {
+        return turnLatency;
+    }
+
+    /**
+     * Fetch the time the SDK's callback threads spent in the event listeners of the manager. Keep it low: a
+     * connector delivers its events one after the other.
+     *
+     * @return the callback times, in microseconds
+     */
+    public LatencyRecorder getCallbackTime() {
+        return callbackTime;
+    }
+
+    /**
+     * Formats the counters on one line for logging.
+     *
+     * @return the report
+     */
+    public String report() {
+        return String.format("sessions=%d reaped=%d turns=%d turnsPerSecond=%.1f queuedActivities=%d queuedPlayback=%d"
+                        + " droppedActivities=%d turnLatency: %s callbackTime: %s",
+                getActiveSessionCount(), getReapedSessionCount(), getTurnCount(), getTurnsPerSecond(),
+                workers.getQueue().size(), players.getQueue().size(), getDroppedActivityCount(), turnLatency,
+                callbackTime);
+    }
+
+    /**
+     * Closes all sessions and stops the worker and playback threads. Activities still queued are discarded and
+     * their audio is closed.
+     */
+    @Override
+    public void close() {
+        housekeeper.shutdownNow();
+        for (DialogSession session : getSessions()) {
+            session.close();
+        }
+        workers.shutdownNow();
+        players.shutdownNow();
+        for (PullAudioOutputStream audio : pendingAudio) {
+            discard(audio);
+        }
+    }
+
+    void remove(final DialogSession session) {
+        sessions.remove(session.getId(), session);
+    }
+
+    void turnEnded(final DialogSession session, final TurnTracker.Outcome outcome) {
+        turnCount.incrementAndGet();
+        if (outcome == TurnTracker.Outcome.RESPONSE) {
+            turnLatency.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - session.getTurnStartNanos()));
+        }
+    }
+
+    private void registerEventListeners(final DialogSession session) {
+        final DialogServiceConnector connector = session.getConnector();
+        final String id = session.getId();
+
+        // Recognizing will provide the intermediate recognized text while an audio stream is being processed
+        connector.recognizing.addEventListener(timed(session, (o, e) -> {
+            log.info("[{}] Recognizing speech event text: {}", id, e.getResult().getText());
+        }));
+
+        // Recognized will provide the final recognized text once audio capture is completed
+        connector.recognized.addEventListener(timed(session, (o, e) -> {
+            if (e.getResult().getText().trim().equals("")) {
+                log.warn("[{}] No speech was recognized.", id);
+                session.getTurnTracker().complete(e.getSessionId(), TurnTracker.Outcome.NO_SPEECH);
+            } else {
+                log.info("[{}] Recognized speech event text: {}", id, e.getResult().getText());
+            }
+        }));
+
+        // SessionStarted will notify when audio begins flowing to the service for a turn
+        connector.sessionStarted.addEventListener(timed(session, (o, e) -> {
+            log.info("[{}] Session started event. Session id: {}", id, e.getSessionId());
+            session.getTurnTracker().bindTurn(e.getSessionId());
+        }));
+
+        // SessionStopped will notify when a turn is complete
+        connector.sessionStopped.addEventListener(timed(session, (o, e) -> {
+            log.info("[{}] Session stopped event. Session id: {}", id, e.getSessionId());
+        }));
+
+        // Canceled will be signaled when a turn is aborted or experiences an error condition
+        connector.canceled.addEventListener(timed(session, (o, e) -> {
+            log.info("[{}] Canceled event details: {}", id, e.getErrorDetails());
+            connector.disconnectAsync();
+            // A connection error may cancel the turn before its session started.
+            session.getTurnTracker().bindTurn(e.getSessionId());
+            session.getTurnTracker().complete(e.getSessionId(), TurnTracker.Outcome.CANCELED);
+        }));
+
+        // ActivityReceived is the main way your bot will communicate with the client. Only the activity and its
+        // audio stream are taken from the event here; parsing and playback run on the manager's threads.
+        connector.activityReceived.addEventListener(timed(session, (o, e) -> {
+            final String json = e.getActivity();
+            final PullAudioOutputStream audio = e.hasAudio() ? e.getAudio() : null;
+            if (!session.tryQueueActivity(maxQueuedActivities)) {
+                droppedActivityCount.incrementAndGet();
+                log.warn("[{}] Dropped an activity, {} are waiting to be handled.", id, maxQueuedActivities);
+                if (audio != null) {
+                    audio.close();
+                }
+                return;
+            }
+            if (audio != null) {
+                pendingAudio.add(audio);
+            }
+            session.runOnActivityLane(() -> {
+                boolean playing = false;
+                try {
+                    playing = handleActivity(session, json, audio);
+                } finally {
+                    if (!playing) {
+                        session.activityDone();
+                    }
+                }
+            }, workers);
+        }));
+    }
+
+    /**
+     * Wraps an event listener to mark the session as active and to record the time spent on the callback thread.
+     */
+    private <T> EventHandler<T> timed(final DialogSession session, final EventHandler<T> listener) {
+        return (sender, e) -> {
+            final long start = System.nanoTime();
+            session.touch();
+            try {
+                listener.onEvent(sender, e);
+            } finally {
+                callbackTime.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+            }
+        };
+    }
+
+    /**
+     * Handles an activity on a worker thread.
+     *
+     * @return true if its audio was queued for playback, which then completes the activity; otherwise the audio
+     * was closed
+     */
+    private boolean handleActivity(final DialogSession session, final String json, final PullAudioOutputStream audio) {
+        if (session.isClosed()) {
+            discard(audio);
+            return false;
+        }
+        final ParsedActivity activity;
+        final boolean answersTurn;
+        try {
+            activity = ParsedActivity.parse(json, mapper);
+            log.info("[{}] Received activity {} audio: {}", session.getId(), audio != null ? "with" : "without", json);
+            answersTurn = activityHandler.onActivity(session, activity);
+        } catch (Exception e) {
+            log.error("[{}] Exception thrown when handling an activity. ErrorMessage: {}", session.getId(), e.getMessage(), e);
+            discard(audio);
+            return false;
+        } finally {
+            session.touch();
+        }
+
+        if (audio == null) {
+            if (answersTurn) {
+                session.getTurnTracker().complete(activity.getReplyToId(), TurnTracker.Outcome.RESPONSE);
+            }
+            return false;
+        }
+        // The turn ends once the response was played, so its latency includes the playback.
+        session.runOnPlaybackLane(() -> {
+            try {
+                playAudio(session, activity, audio, answersTurn);
+            } finally {
+                session.activityDone();
+            }
+        }, players);
+        return true;
+    }
+
+    private void playAudio(final DialogSession session, final ParsedActivity activity,
+                           final PullAudioOutputStream audio, final boolean answersTurn) {
+        if (session.isClosed()) {
+            discard(audio);
+            return;
+        }
+        if (!pendingAudio.remove(audio)) {
+            // The manager was closed and closed the audio.
+            return;
+        }
+        try {
+            activityHandler.onAudio(session, activity, audio);
+        } catch (Exception e) {
+            log.error("[{}] Exception thrown during playback. ErrorMessage: {}", session.getId(), e.getMessage(), e);
+        } finally {
+            session.touch();
+        }
+        if (answersTurn) {
+            session.getTurnTracker().complete(activity.getReplyToId(), TurnTracker.Outcome.RESPONSE);
+        }
+    }
+
+    /**
+     * Closes the audio of an activity that is not played, unless it was handed on or closed already.
+     */
+    private void discard(final PullAudioOutputStream audio) {
+        if (audio != null && pendingAudio.remove(audio)) {
+            try {
+                audio.close();
+            } catch (RuntimeException e) {
+                log.error("Exception thrown when closing activity audio. ErrorMessage: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void housekeeping() {
+        try {
+            final long now = System.nanoTime();
+            final long turns = turnCount.get();
+            turnsPerSecond = (turns - lastTurnCount) * 1e9 / Math.max(1, now - lastRateNanos);
+            lastTurnCount = turns;
+            lastRateNanos = now;
+
+            if (idleTimeoutNanos > 0) {
+                final List<DialogSession> idle = new ArrayList<>();
+                for (DialogSession session : sessions.values()) {
+                    if (now - session.getLastActivityNanos() > idleTimeoutNanos) {
+                        idle.add(session);
+                    }
+                }
+                for (DialogSession session : idle) {
+                    log.info("[{}] Closing idle session.", session.getId());
+                    reapedSessionCount.incrementAndGet();
+                    session.close();
+                }
+            }
+        } catch (RuntimeException e) {
+            // Keep the housekeeping task scheduled.
+            log.error("Exception thrown during housekeeping. ErrorMessage: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * A lane submits its next task only once the previous one is done, so the queue holds at most one task per
+     * session and lane; the sessions' own limits bound the work waiting behind it.
+     */
+    private static ThreadPoolExecutor sharedPool(final int threads, final String name) {
+        final ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), daemonThreads(name));
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static ThreadFactory daemonThreads(final String name) {
+        final AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            final Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,294 @@
+/**
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE.md file in the project root for full license information.
+ */
+package com.speechsdk.quickstart;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.Control;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.LineListener;
+import javax.sound.sampled.SourceDataLine;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link SourceDataLine} without a sound card, to run and measure playback on build machines and servers.
+ * <p>
+ * The line consumes its buffer at the frame rate of the audio format times a speed factor, as a sound card
+ * would, and discards the audio. {@link #write} blocks while the buffer is full. Whenever the buffer runs dry
+ * while the line is running, other than in {@link #drain}, an underrun is counted. A speed of 0 consumes all
+ * audio immediately, which measures the cost of the playback pipeline alone.
+ */
+public final class HeadlessSourceDataLine implements SourceDataLine {
+    /**
+     * The buffer size used by {@link #open(AudioFormat)} (500 ms of 16 kHz, 16-bit mono audio).
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 16000;
+
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final double speed;
+    private AudioFormat format;
+    private int bufferSize;
+    private boolean open;
+    private boolean running;
+    private long written;
+    private long played;
+    private long lastAdvanceNanos;
+    private boolean dry = true;
+    private boolean draining;
+    private long underrunCount;
+
+    /**
+     * Creates a line playing in real time.
+     */
+    public HeadlessSourceDataLine() {
+        this(1);
+    }
+
+    /**
+     * Creates a line playing at a multiple of real time.
+     *
+     * @param speed the playback speed, 1 for real time, 0 for as fast as audio is written
+     */
+    public HeadlessSourceDataLine(final double speed) {
+        if (speed < 0) {
+            throw new IllegalArgumentException("speed must not be negative");
+        }
+        this.speed = speed;
+    }
+
+    /**
+     * Fetch the number of times the buffer ran dry while the line was running.
+     *
+     * @return the number of underruns
+     */
+    public synchronized long getUnderrunCount() {
+        return underrunCount;
+    }
+
+    @Override
+    public synchronized void open(final AudioFormat format, final int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize must be positive");
+        }
+        this.format = format;
+        this.bufferSize = bufferSize;
+        this.written = 0;
+        this.played = 0;
+        this.dry = true;
+        this.open = true;
+    }
+
+    @Override
+    public void open(final AudioFormat format) {
+        open(format, DEFAULT_BUFFER_SIZE);
+    }
+
+    @Override
+    public void open() {
+        open(new AudioFormat(16000, 16, 1, true, false));
+    }
+
+    @Override
+    public synchronized void close() {
+        running = false;
+        open = false;
+    }
+
+    @Override
+    public synchronized boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public int write(final byte[] b, final int off, final int len) {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        int remaining = len;
+        while (remaining > 0) {
+            final long waitNanos;
+            synchronized (this) {
+                if (!open) {
+                    return len - remaining;
+                }
+                advance();
+                final int count = (int) Math.min(remaining, bufferSize - (written - played));
+                written += count;
+                remaining -= count;
+                if (count > 0) {
+                    draining = false;
+                    if (running) {
+                        dry = false;
+                    }
+                }
+                if (remaining == 0) {
+                    break;
+                }
+                if (!running) {
+                    // Like a sound card, a stopped line blocks writes to a full buffer until it is started.
+                    waitNanos = MAX_PARK_NANOS;
+                } else {
+                    waitNanos = nanosFor(Math.min(remaining, bufferSize));
+                }
+            }
+            LockSupport.parkNanos(Math.min(Math.max(waitNanos, 1), MAX_PARK_NANOS));
+        }
+        return len;
+    }
+
+    @Override
+    public void drain() {
+        while (true) {
+            final long waitNanos;
+            synchronized (this) {
+                // Running dry at the end of the audio is not an underrun.
+                draining = true;
+                advance();
+                if (!running || written == played) {
+                    return;
+                }
+                waitNanos = nanosFor(written - played);
+            }
+            LockSupport.parkNanos(Math.min(Math.max(waitNanos, 1), MAX_PARK_NANOS));
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+        advance();
+        written = played;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!running) {
+            running = true;
+            lastAdvanceNanos = System.nanoTime();
+            dry = written == played;
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        advance();
+        running = false;
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public synchronized boolean isActive() {
+        advance();
+        return running && written > played;
+    }
+
+    @Override
+    public synchronized AudioFormat getFormat() {
+        return format;
+    }
+
+    @Override
+    public synchronized int getBufferSize() {
+        return bufferSize;
+    }
+
+    @Override
+    public synchronized int available() {
+        advance();
+        return (int) (bufferSize - (written - played));
+    }
+
+    @Override
+    public int getFramePosition() {
+        return (int) getLongFramePosition();
+    }
+
+    @Override
+    public synchronized long getLongFramePosition() {
+        advance();
+        return format == null ? 0 : played / Math.max(1, format.getFrameSize());
+    }
+
+    @Override
+    public synchronized long getMicrosecondPosition() {
+        return format == null ? 0 : (long) (getLongFramePosition() * 1000000.0 / format.getFrameRate());
+    }
+
+    @Override
+    public float getLevel() {
+        return AudioSystem.NOT_SPECIFIED;
+    }
+
+    @Override
+    public DataLine.Info getLineInfo() {
+        return new DataLine.Info(SourceDataLine.class, format);
+    }
+
+    @Override
+    public Control[] getControls() {
+        return new Control[0];
+    }
+
+    @Override
+    public boolean isControlSupported(final Control.Type control) {
+        return false;
+    }
+
+    @Override
+    public Control getControl(final Control.Type control) {
+        throw new IllegalArgumentException("Unsupported control type: " + control);
+    }
+
+    @Override
+    public void addLineListener(final LineListener listener) {
+    }
+
+    @Override
+    public void removeLineListener(final LineListener listener) {
+    }
+
+    /**
+     * Moves the play position forward by the time passed since the last call. Called with the lock held.
+     */
+    private void advance() {
+        final long now = System.nanoTime();
+        if (running && format != null) {
+            if (speed == 0) {
+                played = written;
+            } else {
+                final double bytesPerNano = format.getFrameRate() * format.getFrameSize() * speed / 1e9;
+                final long consumable = (long) ((now - lastAdvanceNanos) * bytesPerNano);
+                if (consumable > 0) {
+                    played = Math.min(written, played + consumable);
+                } else {
+                    // Keep the remainder for the next call.
+                    return;
+                }
+            }
+            if (played == written && !dry) {
+                dry = true;
+                if (speed > 0 && !draining) {
+                    underrunCount++;
+                }
+            }
+        }
+        lastAdvanceNanos = now;
+    }
+
+    /**
+     * Converts an amount of audio to the time it takes to play it. Called with the lock held.
+     */
+    private long nanosFor(final long bytes) {
+        if (speed == 0 || format == null) {
+            return 0;
+        }
+        return (long) (bytes / (format.getFrameRate() * format.getFrameSize() * speed) * 1e9);
+    }
+}
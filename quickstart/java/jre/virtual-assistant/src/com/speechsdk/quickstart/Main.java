@@ -10,7 +10,6 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.joda.JodaModule;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import com.microsoft.bot.schema.Activity;
 import com.microsoft.cognitiveservices.speech.audio.AudioConfig;
 import com.microsoft.cognitiveservices.speech.audio.PullAudioOutputStream;
 import com.microsoft.cognitiveservices.speech.dialog.BotFrameworkConfig;
@@ -23,17 +22,20 @@ import org.slf4j.LoggerFactory;
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.DataLine;
+import javax.sound.sampled.LineUnavailableException;
 import javax.sound.sampled.SourceDataLine;
-import java.io.IOException;
 import java.io.InputStream;
 import java.text.SimpleDateFormat;
-import java.util.concurrent.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 
 public class Main {
 
     public static final int DEFAULT_TIMEOUT_FOR_BOT_RESPONSE_IN_SECONDS = 10;
-    public static final int WAIT_INTERVAL_IN_MILLIS = 1000;
+    // Audio buffered in the sound card while playing bot responses.
+    public static final int PLAYBACK_TARGET_LATENCY_IN_MILLIS = 200;
 
     private static final Logger log = LoggerFactory.getLogger(Main.class);
     private static final ObjectMapper mapper = new ObjectMapper()
@@ -48,8 +50,6 @@ public class Main {
         }
     };
 
-    private static Boolean receivedResponse;
-
     public static void main(String[] args) {
 
         // Please replace below with your speech channel secret, speech
@@ -71,39 +71,30 @@ public class Main {
         // Set audio input from microphone.
         final AudioConfig audioConfig = AudioConfig.fromDefaultMicrophoneInput();
 
-        // Create a DialogServiceConnector instance
-        final DialogServiceConnector dialogServiceConnector = new DialogServiceConnector(dialogServiceConfig, audioConfig);
+        // The session manager routes the events of the connector to its session and handles received activities
+        // off the SDK's callback threads.
+        final DialogSessionManager.Config sessionManagerConfig = new DialogSessionManager.Config();
+        sessionManagerConfig.setObjectMapper(mapper);
+        final DialogSessionManager sessionManager = new DialogSessionManager(new ResponseHandler(), sessionManagerConfig);
 
-        // Configure all event listeners.
-        registerEventListeners(dialogServiceConnector);
-        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        // Create a DialogServiceConnector instance
+        final DialogSession session = sessionManager.open(new DialogServiceConnector(dialogServiceConfig, audioConfig));
 
         try {
             // Connect to the backing dialog.
-            dialogServiceConnector.connectAsync().get();
+            session.getConnector().connectAsync().get();
             log.info("DialogServiceConnector is successfully connected");
 
-            // Start listening.
+            // Start listening. The turn ends when the event listeners report its outcome.
             System.out.println("Say something ...");
-            dialogServiceConnector.listenOnceAsync().get();
+            final CompletableFuture<TurnTracker.Outcome> turn = session.listenOnce();
             log.info("DialogServiceConnector is listening...");
 
-            // Start a tak to ait until a response is received from the bot.
-            executorService.submit(() ->
-            {
-                while (receivedResponse == null) {
-                    try {
-                        Thread.sleep(WAIT_INTERVAL_IN_MILLIS);
-                    } catch (InterruptedException e) {
-                        log.error("Received interrupted exception", e);
-                        return false;
-                    }
-                }
-                return receivedResponse;
-            }).get(DEFAULT_TIMEOUT_FOR_BOT_RESPONSE_IN_SECONDS, TimeUnit.SECONDS);
+            // Wait until the event listeners end the turn.
+            final TurnTracker.Outcome outcome = turn.get(DEFAULT_TIMEOUT_FOR_BOT_RESPONSE_IN_SECONDS, TimeUnit.SECONDS);
 
             // Did not receive response
-            if (!receivedResponse) {
+            if (outcome != TurnTracker.Outcome.RESPONSE) {
                 log.error("Did not receive any response fom bot.");
             }
         } catch (TimeoutException ex) {
@@ -111,105 +102,59 @@ public class Main {
         } catch (Exception e) {
             log.error("Exception thrown when connecting to DialogServiceConnector. ErrorMessage:", e.getMessage(), e);
         } finally {
-            log.info("Closing connection.");
-            dialogServiceConnector.close();
-            executorService.shutdownNow();
+            log.info("Closing connection. {}", sessionManager.report());
+            sessionManager.close();
         }
     }
 
-    private static void registerEventListeners(final DialogServiceConnector dialogServiceConnector) {
-        // Recognizing will provide the intermediate recognized text while an audio stream is being processed
-        dialogServiceConnector.recognizing.addEventListener((o, speechRecognitionResultEventArgs) -> {
-            log.info("Recognizing speech event text: {}", speechRecognitionResultEventArgs.getResult().getText());
-        });
-
-        // Recognized will provide the final recognized text once audio capture is completed
-        dialogServiceConnector.recognized.addEventListener((o, speechRecognitionResultEventArgs) -> {
-            if (speechRecognitionResultEventArgs.getResult().getText().trim().equals("")) {
-                log.warn("No speech was recognized. Try running the program again.");
-                // Set receive response to false;
-                receivedResponse = false;
-            } else {
-                log.info("Recognized speech event text: {}", speechRecognitionResultEventArgs.getResult().getText());
+    /**
+     * Shows the text of the bot's responses and plays their audio.
+     */
+    private static final class ResponseHandler implements DialogSessionManager.ActivityHandler {
+        @Override
+        public boolean onActivity(final DialogSession session, final ParsedActivity activity) {
+            // ActivityReceived is the main way your bot will communicate with the client and uses bot framework activities
+            if (StringUtils.isNotBlank(activity.getText()) || StringUtils.isNotBlank(activity.getSpeak())) {
+                System.out.println(String.format("Response: \n\t Text: %s \n\t Speech: %s",
+                        activity.getText(), activity.getSpeak()));
+                return true;
             }
-        });
-
-        // SessionStarted will notify when audio begins flowing to the service for a turn
-        dialogServiceConnector.sessionStarted.addEventListener((o, sessionEventArgs) -> {
-            log.info("Session started event. Session id: {} ", sessionEventArgs.getSessionId());
-        });
-
-        // SessionStopped will notify when a turn is complete
-        dialogServiceConnector.sessionStopped.addEventListener((o, sessionEventArgs) -> {
-            log.info("Session stopped event. Session id: {}", sessionEventArgs.getSessionId());
-        });
-
-        // Canceled will be signaled when a turn is aborted or experiences an error condition
-        dialogServiceConnector.canceled.addEventListener((o, canceledEventArgs) -> {
-            log.info("Canceled event details: {}", canceledEventArgs.getErrorDetails());
-            dialogServiceConnector.disconnectAsync();
-        });
-
-        // ActivityReceived is the main way your bot will communicate with the client and uses bot framework activities
-        dialogServiceConnector.activityReceived.addEventListener((o, activityEventArgs) -> {
-            final String act = activityEventArgs.getActivity();
-            log.info("Received activity {} audio: {}", activityEventArgs.hasAudio() ? "with" : "without", act);
-
-            try {
-                Activity activity = mapper.readValue(act, Activity.class);
-                if (StringUtils.isNotBlank(activity.getText()) || StringUtils.isNotBlank(activity.getSpeak())) {
-                    receivedResponse = true;
-                    System.out.println(String.format("Response: \n\t Text: %s \n\t Speech: %s",
-                            activity.getText(), activity.getSpeak()));
-                }
-            } catch (IOException e) {
-                log.error("IO exception thrown when deserializing the bot response. ErrorMessage:", e.getMessage(), e);
-            }
-            if (activityEventArgs.hasAudio()) {
-                System.out.println("Starting playback.");
-                try {
-                    PullAudioOutputStream response = activityEventArgs.getAudio();
-                    ActivityAudioStream activityAudioStream = new ActivityAudioStream(response);
-
-                    final ActivityAudioStream.ActivityAudioFormat audioFormat = activityAudioStream.getActivityAudioFormat();
-                    final AudioFormat defaultAudioFormat = new AudioFormat(
-                            AudioFormat.Encoding.PCM_SIGNED,
-                            audioFormat.getSamplesPerSecond(),
-                            audioFormat.getBitsPerSample(),
-                            audioFormat.getChannels(),
-                            audioFormat.getFrameSize(),
-                            audioFormat.getSamplesPerSecond(),
-                            false);
-                    playStream(activityAudioStream, defaultAudioFormat);
-                } catch (Exception e) {
-                    log.error("Exception thrown during playback. ErrorMessage: ", e.getMessage());
-                }
-            }
-        });
+            return false;
+        }
+
+        @Override
+        public void onAudio(final DialogSession session, final ParsedActivity activity,
+                            final PullAudioOutputStream response) throws Exception {
+            System.out.println("Starting playback.");
+            ActivityAudioStream activityAudioStream = new ActivityAudioStream(response);
+
+            final ActivityAudioStream.ActivityAudioFormat audioFormat = activityAudioStream.getActivityAudioFormat();
+            final AudioFormat defaultAudioFormat = new AudioFormat(
+                    AudioFormat.Encoding.PCM_SIGNED,
+                    audioFormat.getSamplesPerSecond(),
+                    audioFormat.getBitsPerSample(),
+                    audioFormat.getChannels(),
+                    audioFormat.getFrameSize(),
+                    audioFormat.getSamplesPerSecond(),
+                    false);
+            playStream(activityAudioStream, defaultAudioFormat);
+        }
     }
 
     public static void playStream(final InputStream stream, final AudioFormat format) throws Exception {
-        int bufferSize = format.getFrameSize();
-        final byte[] data = new byte[bufferSize];
-
-        SourceDataLine.Info info = new DataLine.Info(SourceDataLine.class, format);
-        SourceDataLine line = (SourceDataLine) AudioSystem.getLine(info);
-        line.open(format);
-
-        if (line != null) {
-            line.start();
-            int nBytesRead = 0;
-            while (nBytesRead != -1) {
-                nBytesRead = stream.read(data);
-                if (nBytesRead != -1) {
-                    line.write(data, 0, nBytesRead);
-                }
-            }
-            line.drain();
-            line.stop();
-            line.close();
+        SourceDataLine line;
+        try {
+            SourceDataLine.Info info = new DataLine.Info(SourceDataLine.class, format);
+            line = (SourceDataLine) AudioSystem.getLine(info);
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            // No sound card, e.g. on a build machine: play into a line that only keeps time.
+            log.warn("No audio output available, playing without sound.");
+            line = new HeadlessSourceDataLine();
         }
-        stream.close();
+
+        AudioPlayer player = new AudioPlayer(line, PLAYBACK_TARGET_LATENCY_IN_MILLIS);
+        player.play(stream, format);
+        log.info("Playback done, {} bytes, {} underruns.", player.getBytesPlayed(), player.getUnderrunCount());
     }
 }
 // </code>
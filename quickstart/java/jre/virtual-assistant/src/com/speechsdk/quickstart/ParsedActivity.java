@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE.md file in the project root for full license information.
+ */
+package com.speechsdk.quickstart;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microsoft.bot.schema.Activity;
+
+import java.io.IOException;
+
+/**
+ * The fields of a bot framework activity that a voice client needs, read with Jackson's streaming parser.
+ * <p>
+ * Only the top-level {@code type}, {@code text}, {@code speak} and {@code replyToId} are read; everything else,
+ * such as attachments with large adaptive cards, is skipped without building any objects. The complete
+ * {@link Activity} is bound on request by {@link #toActivity()}.
+ */
+public final class ParsedActivity {
+    private final String json;
+    private final ObjectMapper mapper;
+    private String type;
+    private String text;
+    private String speak;
+    private String replyToId;
+    private Activity activity;
+
+    private ParsedActivity(final String json, final ObjectMapper mapper) {
+        this.json = json;
+        this.mapper = mapper;
+    }
+
+    /**
+     * Reads the fields of an activity.
+     *
+     * @param json   the activity as received
+     * @param mapper the mapper used for the parser and for {@link #toActivity()}
+     * @return the parsed activity
+     * @throws IOException if the activity is not a JSON object
+     */
+    public static ParsedActivity parse(final String json, final ObjectMapper mapper) throws IOException {
+        final ParsedActivity parsed = new ParsedActivity(json, mapper);
+        try (JsonParser parser = mapper.getFactory().createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("The activity is not a JSON object.");
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                final String name = parser.getCurrentName();
+                token = parser.nextToken();
+                if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+                final String value = token == JsonToken.VALUE_NULL ? null : parser.getText();
+                switch (name) {
+                    case "type":
+                        parsed.type = value;
+                        break;
+                    case "text":
+                        parsed.text = value;
+                        break;
+                    case "speak":
+                        parsed.speak = value;
+                        break;
+                    case "replyToId":
+                        parsed.replyToId = value;
+                        break;
+                    default:
+                        break;
+                }
+            }
+            if (token != JsonToken.END_OBJECT) {
+                throw new IOException("The activity is truncated.");
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * Fetch the activity type, e.g. "message" or "event".
+     *
+     * @return the type, or null if absent
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Fetch the text of the activity.
+     *
+     * @return the text, or null if absent
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Fetch the speech of the activity, as plain text or SSML.
+     *
+     * @return the speech, or null if absent
+     */
+    public String getSpeak() {
+        return speak;
+    }
+
+    /**
+     * Fetch the identifier of the activity this activity replies to.
+     *
+     * @return the identifier, or null if absent
+     */
+    public String getReplyToId() {
+        return replyToId;
+    }
+
+    /**
+     * Fetch the activity as received.
+     *
+     * @return the JSON of the activity
+     */
+    public String getJson() {
+        return json;
+    }
+
+    /**
+     * Binds the complete activity, the first time it is requested.
+     *
+     * @return the activity
+     * @throws IOException if the activity cannot be bound
+     */
+    public synchronized Activity toActivity() throws IOException {
+        if (activity == null) {
+            activity = mapper.readValue(json, Activity.class);
+        }
+        return activity;
+    }
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE.md file in the project root for full license information.
+ */
+package com.speechsdk.quickstart;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tracks the turns of one {@link com.microsoft.cognitiveservices.speech.dialog.DialogServiceConnector}.
+ * <p>
+ * {@link #startTurn()} hands out a future for the outcome of the next turn, which the connector's event
+ * listeners complete directly through {@link #complete}. Nothing polls, so the caller resumes as soon as the
+ * turn is over, and every connector has its own tracker, so any number of conversations can run in one process.
+ * <p>
+ * Each turn gets the identifier the service gives it, the session id of its events, through {@link #bindTurn}.
+ * Outcomes name the turn they belong to where they can (bot responses through their {@code replyToId}), so a late
+ * event of the previous turn, e.g. one that timed out, cannot end the turn after it. Outcomes without an
+ * identifier, or with one not seen before, end the current turn: bots need not set {@code replyToId}, and
+ * proactive messages have none.
+ */
+public final class TurnTracker {
+    /**
+     * How a turn ended.
+     */
+    public enum Outcome {
+        /**
+         * The bot responded (and the response was played, if it had audio).
+         */
+        RESPONSE,
+        /**
+         * No speech was recognized, so the bot was not asked.
+         */
+        NO_SPEECH,
+        /**
+         * The turn was canceled, e.g. because of a connection error.
+         */
+        CANCELED
+    }
+
+    private static final class Turn {
+        private final CompletableFuture<Outcome> future = new CompletableFuture<>();
+        private volatile String id;
+    }
+
+    private final AtomicReference<Turn> current = new AtomicReference<>(ended());
+    // The current and the previous turn by identifier, so events of the previous turn are recognized as late.
+    private final Map<String, Turn> turnsById = new ConcurrentHashMap<>();
+
+    /**
+     * Starts a new turn. Call before listening, so events of the turn cannot be missed.
+     *
+     * @return the future completed with the outcome of the turn; wait on it with a timeout
+     */
+    public CompletableFuture<Outcome> startTurn() {
+        final Turn turn = new Turn();
+        final Turn previous = current.getAndSet(turn);
+        turnsById.values().removeIf(t -> t != previous);
+        // A turn that never ended (e.g. timed out) must not keep its waiters blocked.
+        previous.future.complete(Outcome.CANCELED);
+        return turn.future;
+    }
+
+    /**
+     * Assigns an identifier to the current turn, if it has none yet. Call with the session id of every event
+     * that starts or ends a turn; identifiers of earlier turns are ignored.
+     *
+     * @param turnId the session id of the event
+     */
+    public void bindTurn(final String turnId) {
+        final String id = normalize(turnId);
+        if (id == null || turnsById.containsKey(id)) {
+            return;
+        }
+        final Turn turn = current.get();
+        synchronized (turn) {
+            if (turn.id == null && !turn.future.isDone()) {
+                turn.id = id;
+                turnsById.put(id, turn);
+            }
+        }
+    }
+
+    /**
+     * Ends the current turn, unless the identifier names the previous turn. Only the first outcome of a turn
+     * counts.
+     *
+     * @param turnId the session id of the event, or the {@code replyToId} of a bot response; may be null
+     * @param outcome how the turn ended
+     * @return true if this call ended the turn
+     */
+    public boolean complete(final String turnId, final Outcome outcome) {
+        final String id = normalize(turnId);
+        final Turn turn = current.get();
+        if (id != null && !id.equals(turn.id) && turnsById.containsKey(id)) {
+            // A late outcome of the previous turn.
+            return false;
+        }
+        return turn.future.complete(outcome);
+    }
+
+    /**
+     * Ends the current turn as canceled, whatever its identifier, e.g. when the session is closed.
+     *
+     * @return true if this call ended the turn
+     */
+    public boolean cancel() {
+        return current.get().future.complete(Outcome.CANCELED);
+    }
+
+    /**
+     * Fetch whether a turn is in progress.
+     *
+     * @return true between {@link #startTurn()} and the end of the turn
+     */
+    public boolean isTurnInProgress() {
+        return !current.get().future.isDone();
+    }
+
+    private static Turn ended() {
+        final Turn turn = new Turn();
+        turn.future.complete(Outcome.CANCELED);
+        return turn;
+    }
+
+    // Session ids come without dashes, activity ids may have them.
+    private static String normalize(final String turnId) {
+        return turnId == null || turnId.isEmpty() ? null : turnId.replace("-", "").toLowerCase(Locale.ROOT);
+    }
+}
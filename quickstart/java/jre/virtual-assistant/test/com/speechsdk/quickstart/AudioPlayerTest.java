@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE.md file in the project root for full license information.
+ */
+package com.speechsdk.quickstart;
+
+import org.junit.Test;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AudioPlayerTest {
+    private static final AudioFormat FORMAT = new AudioFormat(16000, 16, 1, true, false);
+
+    @Test(timeout = 5000)
+    public void playEndsWhenTheSourceThrowsAnUncheckedException() throws Exception {
+        final IllegalStateException failure = new IllegalStateException("native read failed");
+        final FailingStream stream = new FailingStream(4, failure);
+        final AudioPlayer player = new AudioPlayer(new HeadlessSourceDataLine(0), 100);
+        try {
+            player.play(stream, FORMAT);
+            fail("play() did not report the failure of the stream");
+        } catch (IOException e) {
+            assertSame(failure, e.getCause());
+        }
+        assertTrue(stream.closed);
+        assertEquals(4, stream.reads);
+    }
+
+    @Test(timeout = 5000)
+    public void playRethrowsAnIOExceptionOfTheSource() throws Exception {
+        final IOException failure = new IOException("connection lost");
+        final FailingStream stream = new FailingStream(4, failure);
+        final AudioPlayer player = new AudioPlayer(new HeadlessSourceDataLine(0), 100);
+        try {
+            player.play(stream, FORMAT);
+            fail("play() did not report the failure of the stream");
+        } catch (IOException e) {
+            assertSame(failure, e);
+        }
+        assertTrue(stream.closed);
+    }
+
+    @Test(timeout = 5000)
+    public void playPlaysTheWholeStream() throws Exception {
+        final FailingStream stream = new FailingStream(Integer.MAX_VALUE, null);
+        stream.remaining = 32000;
+        final AudioPlayer player = new AudioPlayer(new HeadlessSourceDataLine(0), 100);
+        player.play(stream, FORMAT);
+        assertEquals(32000, player.getBytesPlayed());
+        assertTrue(stream.closed);
+    }
+
+    /**
+     * Returns silence, then throws on the given read.
+     */
+    private static final class FailingStream extends InputStream {
+        private final int failingRead;
+        private final Throwable failure;
+        int reads;
+        long remaining = Long.MAX_VALUE;
+        volatile boolean closed;
+
+        FailingStream(final int failingRead, final Throwable failure) {
+            this.failingRead = failingRead;
+            this.failure = failure;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (++reads == failingRead) {
+                if (failure instanceof IOException) {
+                    throw (IOException) failure;
+                }
+                throw (RuntimeException) failure;
+            }
+            if (remaining == 0) {
+                return -1;
+            }
+            final int n = (int) Math.min(len, remaining);
+            Arrays.fill(b, off, off + n, (byte) 0);
+            remaining -= n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE.md file in the project root for full license information.
+ */
+package com.speechsdk.quickstart;
+
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TurnTrackerTest {
+    private static final String FIRST_SESSION = "0f5c1a8e6f2b4c0e9d7a3b5c1e2f4a6b";
+    private static final String SECOND_SESSION = "7d3e9b1c5a2f4e8d6c0b9a7e5d3c1f2a";
+
+    @Test
+    public void responseWithTheSessionIdOfTheTurnEndsIt() {
+        final TurnTracker tracker = new TurnTracker();
+        final CompletableFuture<TurnTracker.Outcome> turn = tracker.startTurn();
+        tracker.bindTurn(FIRST_SESSION);
+
+        // Activity ids may come with dashes and in upper case.
+        assertTrue(tracker.complete("0F5C1A8E-6F2B-4C0E-9D7A-3B5C1E2F4A6B", TurnTracker.Outcome.RESPONSE));
+        assertEquals(TurnTracker.Outcome.RESPONSE, turn.getNow(null));
+        assertFalse(tracker.isTurnInProgress());
+    }
+
+    @Test
+    public void lateResponseOfThePreviousTurnIsIgnored() {
+        final TurnTracker tracker = new TurnTracker();
+        final CompletableFuture<TurnTracker.Outcome> first = tracker.startTurn();
+        tracker.bindTurn(FIRST_SESSION);
+
+        // The first turn timed out; its response arrives during the second one.
+        final CompletableFuture<TurnTracker.Outcome> second = tracker.startTurn();
+        assertEquals(TurnTracker.Outcome.CANCELED, first.getNow(null));
+        tracker.bindTurn(SECOND_SESSION);
+
+        assertFalse(tracker.complete(FIRST_SESSION, TurnTracker.Outcome.RESPONSE));
+        assertFalse(second.isDone());
+        assertTrue(tracker.complete(SECOND_SESSION, TurnTracker.Outcome.RESPONSE));
+        assertEquals(TurnTracker.Outcome.RESPONSE, second.getNow(null));
+    }
+
+    @Test
+    public void lateResponseBeforeTheNextTurnIsBoundIsIgnored() {
+        final TurnTracker tracker = new TurnTracker();
+        tracker.startTurn();
+        tracker.bindTurn(FIRST_SESSION);
+
+        final CompletableFuture<TurnTracker.Outcome> second = tracker.startTurn();
+        assertFalse(tracker.complete(FIRST_SESSION, TurnTracker.Outcome.RESPONSE));
+        assertFalse(second.isDone());
+    }
+
+    @Test
+    public void responseWithoutReplyToIdEndsTheCurrentTurn() {
+        final TurnTracker tracker = new TurnTracker();
+        final CompletableFuture<TurnTracker.Outcome> turn = tracker.startTurn();
+        tracker.bindTurn(FIRST_SESSION);
+
+        assertTrue(tracker.complete(null, TurnTracker.Outcome.RESPONSE));
+        assertEquals(TurnTracker.Outcome.RESPONSE, turn.getNow(null));
+    }
+
+    @Test
+    public void responseWithAnUnknownReplyToIdEndsTheCurrentTurn() {
+        final TurnTracker tracker = new TurnTracker();
+        final CompletableFuture<TurnTracker.Outcome> turn = tracker.startTurn();
+        tracker.bindTurn(FIRST_SESSION);
+
+        assertTrue(tracker.complete("some-activity-id", TurnTracker.Outcome.RESPONSE));
+        assertEquals(TurnTracker.Outcome.RESPONSE, turn.getNow(null));
+    }
+
+    @Test
+    public void onlyTheFirstOutcomeCounts() {
+        final TurnTracker tracker = new TurnTracker();
+        final CompletableFuture<TurnTracker.Outcome> turn = tracker.startTurn();
+        tracker.bindTurn(FIRST_SESSION);
+
+        assertTrue(tracker.complete(FIRST_SESSION, TurnTracker.Outcome.NO_SPEECH));
+        assertFalse(tracker.complete(null, TurnTracker.Outcome.RESPONSE));
+        assertEquals(TurnTracker.Outcome.NO_SPEECH, turn.getNow(null));
+    }
+}
@@ -0,0 +1,72 @@
+package com.microsoft.cognitiveservices.speech.samples.benchmarks;
+
+//
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE.md file in the project root for full license information.
+//
+
+import com.microsoft.cognitiveservices.speech.samples.console.PushAudioOutputStreamSampleCallback;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.InputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Feeds a fake synthesis stream into PushAudioOutputStreamSampleCallback,
+// chunk by chunk as the SDK does, and reads the collected audio back. The time
+// per operation should grow linearly with the number of minutes.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+@State(Scope.Thread)
+public class PushAudioOutputStreamBenchmark {
+    // 16 kHz, 16-bit mono, the default synthesis output format.
+    private static final int BYTES_PER_SECOND = 32000;
+
+    @Param({"1", "10", "30"})
+    public int minutes;
+
+    // 20 ms, 100 ms (roughly what the service streams) and 1 s chunks.
+    @Param({"640", "3200", "32000"})
+    public int chunkSize;
+
+    private byte[] chunk;
+    private byte[] readBuffer;
+
+    @Setup
+    public void setup() {
+        chunk = new byte[chunkSize];
+        new Random(42).nextBytes(chunk);
+        readBuffer = new byte[64 * 1024];
+    }
+
+    @Benchmark
+    public long write() {
+        return synthesize().getAudioLength();
+    }
+
+    @Benchmark
+    public long writeAndRead() throws IOException {
+        PushAudioOutputStreamSampleCallback callback = synthesize();
+        long total = 0;
+        try (InputStream stream = callback.getAudioStream()) {
+            int numRead;
+            while ((numRead = stream.read(readBuffer)) > 0) {
+                total += numRead;
+            }
+        }
+        return total;
+    }
+
+    private PushAudioOutputStreamSampleCallback synthesize() {
+        PushAudioOutputStreamSampleCallback callback = new PushAudioOutputStreamSampleCallback(false);
+        long chunks = (long) minutes * 60 * BYTES_PER_SECOND / chunkSize;
+        for (long i = 0; i < chunks; i++) {
+            callback.write(chunk);
+        }
+        return callback;
+    }
+}
@@ -0,0 +1,72 @@
+package com.microsoft.cognitiveservices.speech.samples.benchmarks;
+
+//
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE.md file in the project root for full license information.
+//
+
+import com.microsoft.cognitiveservices.speech.ResultReason;
+import com.microsoft.cognitiveservices.speech.samples.console.FakeSpeechBackend;
+import com.microsoft.cognitiveservices.speech.samples.console.FakeSpeechSynthesizer;
+import com.microsoft.cognitiveservices.speech.samples.console.SynthesizerPool;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Borrow, synthesize and release against the offline fake backend with zero
+// latencies, so the time per operation is the overhead of the pool, the event
+// dispatch and the audio copies, from 1 and 16 threads at once.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SynthesizerPoolBenchmark {
+
+    @Param({"../../../../sampledata/audiofiles"})
+    public String audioDirectory;
+
+    private FakeSpeechBackend backend;
+    private SynthesizerPool<FakeSpeechSynthesizer> pool;
+
+    @Setup
+    public void setup() throws IOException {
+        FakeSpeechBackend.Config backendConfig = new FakeSpeechBackend.Config();
+        backendConfig.setAudioDirectory(audioDirectory);
+        backendConfig.setConnectionLatency(FakeSpeechBackend.LatencyModel.constant(0));
+        backendConfig.setFirstByteLatency(FakeSpeechBackend.LatencyModel.constant(0));
+        backendConfig.setSynthesisSpeed(0);
+        backend = new FakeSpeechBackend(backendConfig);
+
+        SynthesizerPool.Config poolConfig = new SynthesizerPool.Config();
+        poolConfig.setMaxTotal(32);
+        pool = SynthesizerPool.create(backend, poolConfig);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.close();
+        backend.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long speakSingleThread() throws Exception {
+        return speak();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public long speakContended() throws Exception {
+        return speak();
+    }
+
+    private long speak() throws Exception {
+        FakeSpeechSynthesizer synthesizer = pool.borrow();
+        FakeSpeechSynthesizer.Result result = synthesizer.SpeakTextAsync("today is a nice day.").get();
+        pool.release(synthesizer, result.getReason() == ResultReason.SynthesizingAudioCompleted);
+        return result.getAudioLength();
+    }
+}
@@ -0,0 +1,58 @@
+package com.microsoft.cognitiveservices.speech.samples.benchmarks;
+
+//
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE.md file in the project root for full license information.
+//
+
+import com.microsoft.cognitiveservices.speech.samples.console.WavFormat;
+import com.microsoft.cognitiveservices.speech.samples.console.WavHeaderParser;
+import com.microsoft.cognitiveservices.speech.samples.console.WavStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// Parses the header of a wave file held in memory, through
+// WavStream.parseWavHeader (stream based, as used for every recognition from
+// a file) and through WavHeaderParser.parse(ByteBuffer) (as used by
+// MappedWavStream). Only the first 64 KB of the file are kept, that is more
+// than any header in sampledata.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WavHeaderBenchmark {
+
+    @Param({"../../../../sampledata/audiofiles/aboutSpeechSdk.wav"})
+    public String file;
+
+    private byte[] header;
+    private ByteBuffer headerBuffer;
+    private WavStream wavStream;
+
+    @Setup
+    public void setup() throws IOException {
+        byte[] data = Files.readAllBytes(Paths.get(file));
+        header = Arrays.copyOf(data, Math.min(data.length, 64 * 1024));
+        headerBuffer = ByteBuffer.wrap(header);
+        wavStream = new WavStream(new ByteArrayInputStream(header));
+    }
+
+    @Benchmark
+    public Object parseWavHeader() throws IOException {
+        return wavStream.parseWavHeader(new ByteArrayInputStream(header));
+    }
+
+    @Benchmark
+    public WavFormat parseBuffer() throws IOException {
+        return WavHeaderParser.parse(headerBuffer);
+    }
+}
@@ -0,0 +1,69 @@
+package com.microsoft.cognitiveservices.speech.samples.benchmarks;
+
+//
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE.md file in the project root for full license information.
+//
+
+import com.microsoft.cognitiveservices.speech.audio.PullAudioInputStreamCallback;
+import com.microsoft.cognitiveservices.speech.samples.console.MappedWavStream;
+import com.microsoft.cognitiveservices.speech.samples.console.WavStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Reads a complete wave file the way the SDK pulls it during recognition,
+// once through the stream based WavStream and once through MappedWavStream.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WavStreamBenchmark {
+
+    @Param({"../../../../sampledata/audiofiles/aboutSpeechSdk.wav"})
+    public String file;
+
+    // 100 ms, 200 ms (typical SDK pull size) and 1 s of 16 kHz 16-bit mono audio.
+    @Param({"3200", "6400", "32000"})
+    public int bufferSize;
+
+    private byte[] buffer;
+
+    @Setup
+    public void setup() {
+        buffer = new byte[bufferSize];
+    }
+
+    @Benchmark
+    public long streamRead() throws IOException {
+        WavStream stream = new WavStream(new FileInputStream(file));
+        try {
+            return drain(stream);
+        } finally {
+            stream.close();
+        }
+    }
+
+    @Benchmark
+    public long mappedRead() throws IOException {
+        MappedWavStream stream = new MappedWavStream(file);
+        try {
+            return drain(stream);
+        } finally {
+            stream.close();
+        }
+    }
+
+    private long drain(PullAudioInputStreamCallback stream) {
+        long total = 0;
+        int numRead;
+        while ((numRead = stream.read(buffer)) > 0) {
+            total += numRead;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,51 @@
+package com.microsoft.cognitiveservices.speech.samples.compressedinput;
+
+//
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE.md file in the project root for full license information.
+//
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.FileNotFoundException;
+import java.util.concurrent.TimeUnit;
+
+// Pulls a complete file through the Android compressed-input sample's
+// BinaryAudioStreamReader, the way the SDK pulls compressed audio. Lives in the
+// sample's package for the package-private constructor.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BinaryAudioStreamReaderBenchmark {
+
+    @Param({"../../../../sampledata/audiofiles/aboutSpeechSdk.wav"})
+    public String file;
+
+    @Param({"640", "3200", "32000"})
+    public int bufferSize;
+
+    private byte[] buffer;
+
+    @Setup
+    public void setup() {
+        buffer = new byte[bufferSize];
+    }
+
+    @Benchmark
+    public long read() throws FileNotFoundException {
+        BinaryAudioStreamReader reader = new BinaryAudioStreamReader(file);
+        try {
+            long total = 0;
+            int numRead;
+            while ((numRead = reader.read(buffer)) > 0) {
+                total += numRead;
+            }
+            return total;
+        } finally {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.speechsdk.quickstart;
+
+//
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE.md file in the project root for full license information.
+//
+
+import com.microsoft.cognitiveservices.speech.samples.console.WavStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Plays a bot response through ActivityAudioStream the way the virtual
+// assistant quickstart does, with the audio of a wave file standing in for
+// the PullAudioOutputStream of the activity. Lives in the quickstart's
+// package for the package-private AudioSource constructor.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ActivityAudioStreamBenchmark {
+
+    @Param({"../../../../sampledata/audiofiles/aboutSpeechSdk.wav"})
+    public String file;
+
+    // 20 ms, 100 ms and 1 s of 16 kHz 16-bit mono audio.
+    @Param({"640", "3200", "32000"})
+    public int bufferSize;
+
+    private byte[] audio;
+    private byte[] buffer;
+
+    @Setup
+    public void setup() throws IOException {
+        WavStream stream = new WavStream(new FileInputStream(file));
+        try {
+            ByteArrayOutputStream data = new ByteArrayOutputStream();
+            byte[] chunk = new byte[32000];
+            int numRead;
+            while ((numRead = stream.read(chunk)) > 0) {
+                data.write(chunk, 0, numRead);
+            }
+            audio = data.toByteArray();
+        } finally {
+            stream.close();
+        }
+        buffer = new byte[bufferSize + 1];
+    }
+
+    // read(byte[], int, int) at an offset, as AudioInputStream / SourceDataLine playback does.
+    @Benchmark
+    public long read() {
+        ActivityAudioStream stream = new ActivityAudioStream(new MemorySource(audio));
+        long total = 0;
+        int numRead;
+        while ((numRead = stream.read(buffer, 1, bufferSize)) > 0) {
+            total += numRead;
+        }
+        stream.close();
+        return total;
+    }
+
+    // Skips through the whole response in bufferSize steps.
+    @Benchmark
+    public long skip() {
+        ActivityAudioStream stream = new ActivityAudioStream(new MemorySource(audio));
+        long total = 0;
+        long skipped;
+        while ((skipped = stream.skip(bufferSize)) > 0) {
+            total += skipped;
+        }
+        stream.close();
+        return total;
+    }
+
+    // The first bufferSize bytes, one byte at a time.
+    @Benchmark
+    public long readSingleBytes() {
+        ActivityAudioStream stream = new ActivityAudioStream(new MemorySource(audio));
+        long total = 0;
+        for (int i = 0; i < bufferSize; i++) {
+            total += stream.read();
+        }
+        stream.close();
+        return total;
+    }
+
+    // Hands out the audio like a PullAudioOutputStream: fills the buffer
+    // completely unless the audio ends, 0 at the end.
+    private static final class MemorySource implements ActivityAudioStream.AudioSource {
+        private final byte[] audio;
+        private int position;
+
+        MemorySource(byte[] audio) {
+            this.audio = audio;
+        }
+
+        @Override
+        public long read(byte[] target) {
+            int count = Math.min(target.length, audio.length - position);
+            System.arraycopy(audio, position, target, 0, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
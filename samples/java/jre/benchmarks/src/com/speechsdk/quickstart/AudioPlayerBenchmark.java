@@ -0,0 +1,63 @@
+package com.speechsdk.quickstart;
+
+//
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE.md file in the project root for full license information.
+//
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.sound.sampled.AudioFormat;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+// Plays a bot response through ActivityAudioStream and AudioPlayer into a
+// HeadlessSourceDataLine that consumes audio as fast as it is written, so the
+// time per operation is the cost of the playback pipeline for several target
+// latencies (block sizes).
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AudioPlayerBenchmark {
+
+    @Param({"../../../../sampledata/audiofiles/aboutSpeechSdk.wav"})
+    public String file;
+
+    @Param({"40", "200", "1000"})
+    public long targetLatencyMillis;
+
+    private final AudioFormat format = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, 16000, 16, 1, 2, 16000, false);
+    private byte[] audio;
+
+    @Setup
+    public void setup() throws Exception {
+        // The header is played as a few samples of noise, which does not matter here.
+        audio = Files.readAllBytes(Paths.get(file));
+    }
+
+    @Benchmark
+    public long play() throws Exception {
+        ActivityAudioStream stream = new ActivityAudioStream(new ActivityAudioStream.AudioSource() {
+            private int position;
+
+            @Override
+            public long read(byte[] buffer) {
+                int count = Math.min(buffer.length, audio.length - position);
+                System.arraycopy(audio, position, buffer, 0, count);
+                position += count;
+                return count;
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        AudioPlayer player = new AudioPlayer(new HeadlessSourceDataLine(0), targetLatencyMillis);
+        player.play(stream, format);
+        return player.getBytesPlayed();
+    }
+}
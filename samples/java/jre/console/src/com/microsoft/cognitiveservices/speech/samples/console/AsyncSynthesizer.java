@@ -0,0 +1,127 @@
+package com.microsoft.cognitiveservices.speech.samples.console;
+
+//
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE.md file in the project root for full license information.
+//
+
+import com.microsoft.cognitiveservices.speech.ResultReason;
+import com.microsoft.cognitiveservices.speech.SpeechSynthesisEventArgs;
+import com.microsoft.cognitiveservices.speech.SpeechSynthesisResult;
+import com.microsoft.cognitiveservices.speech.SpeechSynthesizer;
+import com.microsoft.cognitiveservices.speech.util.EventHandler;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+// Non-blocking synthesis on top of a SynthesizerPool.
+//
+// speakTextAsync() borrows a synthesizer without blocking (queueing behind
+// other requests when the pool is exhausted) and starts the synthesis. The
+// SynthesisCompleted / SynthesisCanceled event signals the end; the request
+// is then completed on the pool's executor with the result of the Future
+// SpeakTextAsync returned, which is done by then or a moment later. The
+// synthesizer goes back to the pool before the future completes. No thread
+// waits for a synthesis to run, so a handful of threads can keep thousands
+// of syntheses in flight.
+//
+// The caller owns the returned result and should close it.
+public class AsyncSynthesizer {
+    private final SynthesizerPool<SpeechSynthesizer> pool;
+
+    public AsyncSynthesizer(SynthesizerPool<SpeechSynthesizer> pool) {
+        this.pool = pool;
+    }
+
+    // audioReceived (may be null) is called with every Synthesizing event, on an SDK thread.
+    public CompletableFuture<SpeechSynthesisResult> speakTextAsync(String text, EventHandler<SpeechSynthesisEventArgs> audioReceived) {
+        return speakAsync(synthesizer -> synthesizer.SpeakTextAsync(text), audioReceived);
+    }
+
+    public CompletableFuture<SpeechSynthesisResult> speakSsmlAsync(String ssml, EventHandler<SpeechSynthesisEventArgs> audioReceived) {
+        return speakAsync(synthesizer -> synthesizer.SpeakSsmlAsync(ssml), audioReceived);
+    }
+
+    private CompletableFuture<SpeechSynthesisResult> speakAsync(Function<SpeechSynthesizer, Future<SpeechSynthesisResult>> speak,
+                                                                EventHandler<SpeechSynthesisEventArgs> audioReceived) {
+        return pool.borrowAsync().thenCompose(synthesizer -> {
+            Request request = new Request(synthesizer, audioReceived);
+            try {
+                request.speaking.complete(speak.apply(synthesizer));
+            } catch (RuntimeException ex) {
+                request.finish(null, ex);
+            }
+            return request.done;
+        });
+    }
+
+    // One synthesis on a borrowed synthesizer, completed by whichever of
+    // SynthesisCompleted / SynthesisCanceled fires.
+    private class Request implements EventHandler<SpeechSynthesisEventArgs> {
+        final CompletableFuture<SpeechSynthesisResult> done = new CompletableFuture<>();
+        // The Future returned by SpeakTextAsync; an event may fire before it is set.
+        final CompletableFuture<Future<SpeechSynthesisResult>> speaking = new CompletableFuture<>();
+        private final AtomicBoolean signalled = new AtomicBoolean();
+        private final SpeechSynthesizer synthesizer;
+        private final EventHandler<SpeechSynthesisEventArgs> audioReceived;
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        Request(SpeechSynthesizer synthesizer, EventHandler<SpeechSynthesisEventArgs> audioReceived) {
+            this.synthesizer = synthesizer;
+            this.audioReceived = audioReceived;
+
+            if (audioReceived != null) {
+                synthesizer.Synthesizing.addEventListener(audioReceived);
+            }
+            synthesizer.SynthesisCompleted.addEventListener(this);
+            synthesizer.SynthesisCanceled.addEventListener(this);
+        }
+
+        @Override
+        public void onEvent(Object sender, SpeechSynthesisEventArgs e) {
+            // Detach from the event outside of the SDK callback, the handler
+            // list is being iterated right now.
+            if (signalled.compareAndSet(false, true)) {
+                speaking.thenAcceptAsync(this::complete, pool.getExecutor());
+            }
+        }
+
+        // Completes the request with the result of the SDK's own Future, so
+        // the native result it holds is handed to the caller, who closes it.
+        private void complete(Future<SpeechSynthesisResult> future) {
+            try {
+                finish(future.get(), null);
+            } catch (ExecutionException ex) {
+                finish(null, ex.getCause());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                finish(null, ex);
+            }
+        }
+
+        void finish(SpeechSynthesisResult result, Throwable error) {
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+
+            if (audioReceived != null) {
+                synthesizer.Synthesizing.removeEventListener(audioReceived);
+            }
+            synthesizer.SynthesisCompleted.removeEventListener(this);
+            synthesizer.SynthesisCanceled.removeEventListener(this);
+
+            // Back to the pool first, so the caller's continuation can borrow it again.
+            boolean healthy = error == null && result.getReason() == ResultReason.SynthesizingAudioCompleted;
+            pool.release(synthesizer, healthy);
+
+            if (error != null) {
+                done.completeExceptionally(error);
+            } else {
+                done.complete(result);
+            }
+        }
+    }
+}
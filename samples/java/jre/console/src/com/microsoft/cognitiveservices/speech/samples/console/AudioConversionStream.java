@@ -0,0 +1,307 @@
+package com.microsoft.cognitiveservices.speech.samples.console;
+
+//
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE.md file in the project root for full license information.
+//
+
+import com.microsoft.cognitiveservices.speech.audio.PullAudioInputStreamCallback;
+
+import java.util.Arrays;
+
+// Conversion stage that wraps any PullAudioInputStreamCallback delivering PCM
+// or IEEE float audio and hands out 16 kHz, 16-bit, mono PCM, which is what
+// the Speech service expects by default.
+//
+// Each read() pulls just enough source audio to fill the SDK buffer: samples
+// are decoded (8/16/24/32-bit integer, 32/64-bit float), channels are averaged
+// down to mono and the result runs through a polyphase windowed-sinc
+// resampler. All scratch buffers are allocated up front, so reads do not
+// allocate.
+//
+// The output is aligned with the input: the delay of the filter is skipped at
+// the start and the filter is flushed with zeros at the end of the source, so
+// N source frames give exactly ceil(N * 16000 / samplesPerSec) samples.
+public class AudioConversionStream extends PullAudioInputStreamCallback {
+    public static final int TARGET_SAMPLES_PER_SEC = 16000;
+
+    // Source frames converted per pull from the wrapped stream.
+    private static final int BLOCK_FRAMES = 2048;
+    // Zero crossings of the sinc kernel on each side of its center.
+    private static final int ZERO_CROSSINGS = 12;
+    // Passband edge relative to the lower of the two Nyquist frequencies.
+    private static final double ROLLOFF = 0.92;
+    // Upper bound for the number of filter phases, keeps odd rates from
+    // producing huge coefficient tables.
+    private static final int MAX_PHASES = 1024;
+
+    private final PullAudioInputStreamCallback source;
+    private final int channels;
+    private final int bytesPerSample;
+    private final int frameSize;
+    private final boolean isFloat;
+
+    // Resampler: output sample n is computed from input sample n * decimation / interpolation.
+    private final int interpolation;
+    private final int decimation;
+    private final int taps;
+    private final float[] coefficients;
+
+    private final byte[] sourceBuffer;
+    private final byte[] partialFrame;
+    private int partialFrameLength;
+
+    // Mono input samples. The first taps - 1 entries before pos are history.
+    private final float[] samples;
+    private int sampleCount;
+    private int pos;
+    private int phase;
+    private boolean endOfStream;
+    // Source frames decoded and samples handed out, to stop after the flush.
+    private long inputSamples;
+    private long outputSamples;
+
+    public AudioConversionStream(PullAudioInputStreamCallback source, WavFormat format) {
+        this(source, format.getSamplesPerSec(), format.getBitsPerSample(), format.getChannels(), format.isFloat());
+        ThrowIfFalse(isSupported(format), "unsupported format " + format);
+        ThrowIfFalse(format.getBlockAlign() == frameSize, "block align");
+    }
+
+    public AudioConversionStream(PullAudioInputStreamCallback source, int samplesPerSec, int bitsPerSample, int channels, boolean isFloat) {
+        ThrowIfFalse(isSupported(samplesPerSec, bitsPerSample, channels, isFloat), "unsupported format");
+
+        this.source = source;
+        this.channels = channels;
+        this.bytesPerSample = bitsPerSample / 8;
+        this.frameSize = bytesPerSample * channels;
+        this.isFloat = isFloat;
+
+        int gcd = gcd(samplesPerSec, TARGET_SAMPLES_PER_SEC);
+        this.interpolation = TARGET_SAMPLES_PER_SEC / gcd;
+        this.decimation = samplesPerSec / gcd;
+        if (interpolation == decimation) {
+            this.taps = 1;
+            this.coefficients = new float[] { 1.0f };
+        } else {
+            int factor = Math.max(interpolation, decimation);
+            this.taps = (2 * ZERO_CROSSINGS * factor + interpolation - 1) / interpolation;
+            this.coefficients = designFilter(interpolation, factor, taps);
+        }
+
+        this.sourceBuffer = new byte[BLOCK_FRAMES * frameSize];
+        this.partialFrame = new byte[frameSize];
+        // Room for the history plus a block, or plus the zeros that flush the filter.
+        this.samples = new float[taps - 1 + Math.max(BLOCK_FRAMES, taps - 1)];
+        this.sampleCount = taps - 1;
+        // Start at the center of the filter instead of its end, so output sample
+        // 0 lines up with input sample 0 rather than trailing it by the group delay.
+        int delay = (interpolation * taps - 1) / 2;
+        this.pos = taps - 1 + delay / interpolation;
+        this.phase = delay % interpolation;
+    }
+
+    public static boolean isSupported(WavFormat format) {
+        return (format.isPcm() || format.isFloat())
+            && isSupported(format.getSamplesPerSec(), format.getBitsPerSample(), format.getChannels(), format.isFloat());
+    }
+
+    // The format of the converted audio, 16 kHz, 16-bit, mono PCM, with the data
+    // length the conversion of the source format will produce.
+    public static WavFormat targetFormat(WavFormat source) {
+        long dataLength = WavFormat.UNKNOWN_LENGTH;
+        if (source.getDataLength() != WavFormat.UNKNOWN_LENGTH) {
+            long frames = source.getDataLength() / source.getBlockAlign();
+            dataLength = 2 * outputSamples(frames, source.getSamplesPerSec());
+        }
+        return new WavFormat(WavFormat.WAVE_FORMAT_PCM, 1, TARGET_SAMPLES_PER_SEC, TARGET_SAMPLES_PER_SEC * 2, 2,
+            16, 16, 0, false, source.getDataOffset(), dataLength);
+    }
+
+    public static boolean isSupported(int samplesPerSec, int bitsPerSample, int channels, boolean isFloat) {
+        if (channels < 1 || samplesPerSec <= 0) {
+            return false;
+        }
+        if (isFloat ? (bitsPerSample != 32 && bitsPerSample != 64)
+                    : (bitsPerSample != 8 && bitsPerSample != 16 && bitsPerSample != 24 && bitsPerSample != 32)) {
+            return false;
+        }
+        int gcd = gcd(samplesPerSec, TARGET_SAMPLES_PER_SEC);
+        return TARGET_SAMPLES_PER_SEC / gcd <= MAX_PHASES;
+    }
+
+    @Override
+    public int read(byte[] dataBuffer) {
+        int capacity = dataBuffer.length / 2;
+        int produced = resample(dataBuffer, 0, capacity);
+
+        while (produced < capacity && fill()) {
+            produced += resample(dataBuffer, produced, capacity - produced);
+        }
+
+        return produced * 2;
+    }
+
+    @Override
+    public void close() {
+        source.close();
+    }
+
+    // region conversion helper functions
+    private int resample(byte[] output, int offset, int count) {
+        int produced = 0;
+        int out = offset * 2;
+
+        long limit = endOfStream ? inputSamples * interpolation : Long.MAX_VALUE;
+        while (produced < count && pos < sampleCount && outputSamples * decimation < limit) {
+            float acc = 0;
+            int base = phase * taps;
+            for (int k = 0; k < taps; k++) {
+                acc += coefficients[base + k] * samples[pos - k];
+            }
+
+            int value = (int) (acc * 32767.0f);
+            if (value > Short.MAX_VALUE) {
+                value = Short.MAX_VALUE;
+            } else if (value < Short.MIN_VALUE) {
+                value = Short.MIN_VALUE;
+            }
+            output[out++] = (byte) value;
+            output[out++] = (byte) (value >> 8);
+
+            phase += decimation;
+            pos += phase / interpolation;
+            phase %= interpolation;
+            produced++;
+            outputSamples++;
+        }
+
+        return produced;
+    }
+
+    // Pulls the next block from the source and appends it to samples as mono
+    // floats. Returns false once the source is exhausted.
+    private boolean fill() {
+        if (endOfStream) {
+            return false;
+        }
+
+        // Keep the filter history in front of the next input sample.
+        int start = pos - (taps - 1);
+        int kept = sampleCount - start;
+        System.arraycopy(samples, start, samples, 0, kept);
+        sampleCount = kept;
+        pos -= start;
+
+        int numRead = source.read(sourceBuffer);
+        if (numRead <= 0) {
+            // Flush the input still held by the filter with zeros.
+            Arrays.fill(samples, sampleCount, sampleCount + taps - 1, 0.0f);
+            sampleCount += taps - 1;
+            endOfStream = true;
+            return true;
+        }
+
+        int offset = 0;
+        if (partialFrameLength > 0) {
+            // Complete the frame left over from the previous pull.
+            int missing = Math.min(frameSize - partialFrameLength, numRead);
+            System.arraycopy(sourceBuffer, 0, partialFrame, partialFrameLength, missing);
+            partialFrameLength += missing;
+            offset = missing;
+            if (partialFrameLength == frameSize) {
+                decode(partialFrame, 0, 1);
+                partialFrameLength = 0;
+            }
+        }
+
+        int frames = (numRead - offset) / frameSize;
+        decode(sourceBuffer, offset, frames);
+        offset += frames * frameSize;
+
+        int rest = numRead - offset;
+        if (rest > 0) {
+            System.arraycopy(sourceBuffer, offset, partialFrame, partialFrameLength, rest);
+            partialFrameLength += rest;
+        }
+        return true;
+    }
+
+    private void decode(byte[] data, int offset, int frames) {
+        float scale = 1.0f / channels;
+        for (int frame = 0; frame < frames; frame++) {
+            float sum = 0;
+            for (int channel = 0; channel < channels; channel++) {
+                sum += decodeSample(data, offset);
+                offset += bytesPerSample;
+            }
+            samples[sampleCount++] = sum * scale;
+        }
+        inputSamples += frames;
+    }
+
+    private float decodeSample(byte[] data, int i) {
+        switch (bytesPerSample) {
+            case 1:
+                // 8-bit PCM is unsigned.
+                return ((data[i] & 0xFF) - 128) / 128.0f;
+            case 2:
+                return (short) ((data[i] & 0xFF) | (data[i + 1] << 8)) / 32768.0f;
+            case 3:
+                return ((data[i] & 0xFF) | ((data[i + 1] & 0xFF) << 8) | (data[i + 2] << 16)) / 8388608.0f;
+            case 4: {
+                int bits = (data[i] & 0xFF) | ((data[i + 1] & 0xFF) << 8) | ((data[i + 2] & 0xFF) << 16) | (data[i + 3] << 24);
+                return isFloat ? Float.intBitsToFloat(bits) : bits / 2147483648.0f;
+            }
+            default: {
+                long low = (data[i] & 0xFF) | ((data[i + 1] & 0xFF) << 8) | ((data[i + 2] & 0xFF) << 16) | ((long) (data[i + 3] & 0xFF) << 24);
+                long high = (data[i + 4] & 0xFF) | ((data[i + 5] & 0xFF) << 8) | ((data[i + 6] & 0xFF) << 16) | ((long) (data[i + 7] & 0xFF) << 24);
+                return (float) Double.longBitsToDouble(low | (high << 32));
+            }
+        }
+    }
+
+    // Blackman windowed sinc low pass, laid out phase by phase so that the
+    // taps of one phase are contiguous. The kernel spans an odd number of
+    // coefficients, so its center, and with it the delay, is a whole sample;
+    // a trailing coefficient left over is zero.
+    private static float[] designFilter(int phases, int factor, int taps) {
+        int length = phases * taps;
+        int span = length % 2 == 1 ? length : length - 1;
+        double center = (span - 1) / 2;
+        double cutoff = ROLLOFF / (2.0 * factor);
+
+        float[] coefficients = new float[length];
+        for (int j = 0; j < span; j++) {
+            double t = j - center;
+            double sinc = t == 0 ? 2 * cutoff : Math.sin(2 * Math.PI * cutoff * t) / (Math.PI * t);
+            double window = 0.42 - 0.5 * Math.cos(2 * Math.PI * j / (span - 1)) + 0.08 * Math.cos(4 * Math.PI * j / (span - 1));
+            int phase = j % phases;
+            int tap = j / phases;
+            coefficients[phase * taps + tap] = (float) (phases * sinc * window);
+        }
+        return coefficients;
+    }
+
+    private static long outputSamples(long inputFrames, int samplesPerSec) {
+        int gcd = gcd(samplesPerSec, TARGET_SAMPLES_PER_SEC);
+        long interpolation = TARGET_SAMPLES_PER_SEC / gcd;
+        long decimation = samplesPerSec / gcd;
+        return (inputFrames * interpolation + decimation - 1) / decimation;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    private static void ThrowIfFalse(Boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+    // endregion
+}
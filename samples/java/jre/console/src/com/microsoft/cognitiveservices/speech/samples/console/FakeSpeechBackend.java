@@ -0,0 +1,395 @@
+package com.microsoft.cognitiveservices.speech.samples.console;
+
+//
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE.md file in the project root for full license information.
+//
+
+import com.microsoft.cognitiveservices.speech.util.EventHandler;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// In-process stand-in for the speech service, for performance tests that have
+// to run without a subscription key (CI, air-gapped machines).
+//
+// FakeSpeechSynthesizer and FakeSpeechRecognizer mirror the parts of
+// SpeechSynthesizer and SpeechRecognizer the server scenario and recognition
+// samples use: the same method and event names, with results and event args
+// that carry the same getters. Latencies, chunk sizes and failure rates come
+// from the Config; the audio comes from the wave files in
+// Config.audioDirectory (16 kHz, 16-bit, mono, e.g. sampledata/audiofiles).
+//
+// All events are raised on the backend's scheduler threads, like the SDK
+// raises them on its own threads. Every fake gets its own Random, seeded from
+// the configured seed and the fake's creation number, so a run with the same
+// seed draws the same latencies and failures per instance. The seeds are
+// scrambled, so fakes created one after another draw independently.
+public class FakeSpeechBackend implements AutoCloseable {
+    // 16 kHz, 16-bit, mono.
+    private static final int BYTES_PER_SECOND = 32000;
+
+    // Draws a latency in milliseconds.
+    public interface LatencyModel {
+        long nextMillis(Random random);
+
+        static LatencyModel constant(long millis) {
+            ThrowIfFalse(millis >= 0, "millis must not be negative.");
+            return random -> millis;
+        }
+
+        static LatencyModel uniform(long minMillis, long maxMillis) {
+            ThrowIfFalse(minMillis >= 0 && maxMillis >= minMillis, "0 <= minMillis <= maxMillis");
+            return random -> minMillis + (long) (random.nextDouble() * (maxMillis - minMillis + 1));
+        }
+
+        // Long-tailed, like service latencies usually are: half of the draws
+        // are below medianMillis, 99% below p99Millis.
+        static LatencyModel logNormal(long medianMillis, long p99Millis) {
+            ThrowIfFalse(medianMillis > 0 && p99Millis >= medianMillis, "0 < medianMillis <= p99Millis");
+            double mu = Math.log(medianMillis);
+            // 2.326 is the 99th percentile of the standard normal distribution.
+            double sigma = (Math.log(p99Millis) - mu) / 2.326;
+            return random -> Math.round(Math.exp(mu + sigma * random.nextGaussian()));
+        }
+    }
+
+    public static class Config {
+        private String audioDirectory = "../../../../sampledata/audiofiles";
+        private long seed = 42;
+        private int callbackThreads = 4;
+
+        // Synthesis: time to connect (once per synthesizer), time to the first
+        // audio chunk, then chunks of synthesisChunkBytes at synthesisSpeed
+        // times real time.
+        private LatencyModel connectionLatency = LatencyModel.logNormal(200, 800);
+        private LatencyModel firstByteLatency = LatencyModel.logNormal(150, 600);
+        private int synthesisChunkBytes = 3200;
+        private double synthesisSpeed = 10;
+        private double synthesisCharactersPerSecond = 15;
+        private double synthesisFailureRate = 0;
+
+        // Recognition: audio is consumed at recognitionSpeed times real time,
+        // a recognizing event is raised every recognizingIntervalMillis of
+        // audio and a recognized event after every recognitionSegmentMillis.
+        private LatencyModel recognitionLatency = LatencyModel.logNormal(100, 400);
+        private double recognitionSpeed = 1;
+        private long recognizingIntervalMillis = 500;
+        private long recognitionSegmentMillis = 3000;
+        private double recognitionFailureRate = 0;
+
+        public String getAudioDirectory() {
+            return audioDirectory;
+        }
+
+        public void setAudioDirectory(String audioDirectory) {
+            this.audioDirectory = audioDirectory;
+        }
+
+        public long getSeed() {
+            return seed;
+        }
+
+        public void setSeed(long seed) {
+            this.seed = seed;
+        }
+
+        public int getCallbackThreads() {
+            return callbackThreads;
+        }
+
+        public void setCallbackThreads(int callbackThreads) {
+            this.callbackThreads = callbackThreads;
+        }
+
+        public LatencyModel getConnectionLatency() {
+            return connectionLatency;
+        }
+
+        public void setConnectionLatency(LatencyModel connectionLatency) {
+            this.connectionLatency = connectionLatency;
+        }
+
+        public LatencyModel getFirstByteLatency() {
+            return firstByteLatency;
+        }
+
+        public void setFirstByteLatency(LatencyModel firstByteLatency) {
+            this.firstByteLatency = firstByteLatency;
+        }
+
+        public int getSynthesisChunkBytes() {
+            return synthesisChunkBytes;
+        }
+
+        public void setSynthesisChunkBytes(int synthesisChunkBytes) {
+            this.synthesisChunkBytes = synthesisChunkBytes;
+        }
+
+        public double getSynthesisSpeed() {
+            return synthesisSpeed;
+        }
+
+        // 0 delivers all chunks right after the first byte latency.
+        public void setSynthesisSpeed(double synthesisSpeed) {
+            this.synthesisSpeed = synthesisSpeed;
+        }
+
+        public double getSynthesisCharactersPerSecond() {
+            return synthesisCharactersPerSecond;
+        }
+
+        // Sets how much audio is produced per character of input text.
+        public void setSynthesisCharactersPerSecond(double synthesisCharactersPerSecond) {
+            this.synthesisCharactersPerSecond = synthesisCharactersPerSecond;
+        }
+
+        public double getSynthesisFailureRate() {
+            return synthesisFailureRate;
+        }
+
+        // Fraction of syntheses that are canceled with an error half way through.
+        public void setSynthesisFailureRate(double synthesisFailureRate) {
+            this.synthesisFailureRate = synthesisFailureRate;
+        }
+
+        public LatencyModel getRecognitionLatency() {
+            return recognitionLatency;
+        }
+
+        // Delay between the end of a segment's audio and its recognized event.
+        public void setRecognitionLatency(LatencyModel recognitionLatency) {
+            this.recognitionLatency = recognitionLatency;
+        }
+
+        public double getRecognitionSpeed() {
+            return recognitionSpeed;
+        }
+
+        // 0 consumes the audio as fast as possible.
+        public void setRecognitionSpeed(double recognitionSpeed) {
+            this.recognitionSpeed = recognitionSpeed;
+        }
+
+        public long getRecognizingIntervalMillis() {
+            return recognizingIntervalMillis;
+        }
+
+        public void setRecognizingIntervalMillis(long recognizingIntervalMillis) {
+            this.recognizingIntervalMillis = recognizingIntervalMillis;
+        }
+
+        public long getRecognitionSegmentMillis() {
+            return recognitionSegmentMillis;
+        }
+
+        public void setRecognitionSegmentMillis(long recognitionSegmentMillis) {
+            this.recognitionSegmentMillis = recognitionSegmentMillis;
+        }
+
+        public double getRecognitionFailureRate() {
+            return recognitionFailureRate;
+        }
+
+        // Fraction of recognition sessions that are canceled with an error part way through.
+        public void setRecognitionFailureRate(double recognitionFailureRate) {
+            this.recognitionFailureRate = recognitionFailureRate;
+        }
+    }
+
+    // Same shape as the SDK's EventHandlerImpl, so samples subscribe with
+    // addEventListener / removeEventListener either way.
+    public static class Event<T> {
+        private final CopyOnWriteArrayList<EventHandler<T>> handlers = new CopyOnWriteArrayList<>();
+
+        public void addEventListener(EventHandler<T> handler) {
+            handlers.add(handler);
+        }
+
+        public void removeEventListener(EventHandler<T> handler) {
+            handlers.remove(handler);
+        }
+
+        void fire(Object sender, T e) {
+            for (EventHandler<T> handler : handlers) {
+                try {
+                    handler.onEvent(sender, e);
+                } catch (RuntimeException ex) {
+                    // Like the SDK, a failing handler does not stop the others.
+                    System.out.println("Event handler failed: " + ex);
+                }
+            }
+        }
+    }
+
+    private final Config config;
+    private final ScheduledExecutorService scheduler;
+    private final List<byte[]> audioFiles = new ArrayList<>();
+    private final long totalAudioBytes;
+    private final AtomicLong instances = new AtomicLong();
+    private final AtomicInteger nextFile = new AtomicInteger();
+
+    public FakeSpeechBackend(Config config) throws IOException {
+        ThrowIfFalse(config.getCallbackThreads() > 0, "callbackThreads must be positive.");
+        ThrowIfFalse(config.getSynthesisChunkBytes() > 0, "synthesisChunkBytes must be positive.");
+        ThrowIfFalse(config.getSynthesisSpeed() >= 0, "synthesisSpeed must not be negative.");
+        ThrowIfFalse(config.getSynthesisCharactersPerSecond() > 0, "synthesisCharactersPerSecond must be positive.");
+        ThrowIfFalse(config.getRecognitionSpeed() >= 0, "recognitionSpeed must not be negative.");
+        ThrowIfFalse(config.getRecognizingIntervalMillis() > 0, "recognizingIntervalMillis must be positive.");
+        ThrowIfFalse(config.getRecognitionSegmentMillis() >= config.getRecognizingIntervalMillis(),
+            "recognitionSegmentMillis must not be less than recognizingIntervalMillis.");
+        this.config = config;
+
+        File[] files = new File(config.getAudioDirectory()).listFiles((dir, name) -> name.toLowerCase().endsWith(".wav"));
+        ThrowIfFalse(files != null, "audioDirectory not found: " + config.getAudioDirectory());
+        // Sorted, so the n-th recognizer gets the same file on every machine.
+        Arrays.sort(files);
+        long total = 0;
+        for (File file : files) {
+            byte[] data = readAudio(file);
+            if (data != null && data.length > 0) {
+                audioFiles.add(data);
+                total += data.length;
+            }
+        }
+        ThrowIfFalse(!audioFiles.isEmpty(), "No 16 kHz 16-bit mono wave files in " + config.getAudioDirectory());
+        this.totalAudioBytes = total;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.scheduler = Executors.newScheduledThreadPool(config.getCallbackThreads(), r -> {
+            Thread thread = new Thread(r, "fake-speech-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public FakeSpeechSynthesizer createSynthesizer() {
+        return new FakeSpeechSynthesizer(this, newRandom());
+    }
+
+    // Recognizes the wave files of the audio directory in turn.
+    public FakeSpeechRecognizer createRecognizer() {
+        int index = Math.floorMod(nextFile.getAndIncrement(), audioFiles.size());
+        return createRecognizer(audioFiles.get(index));
+    }
+
+    // Recognizes the given 16 kHz, 16-bit, mono PCM audio.
+    public FakeSpeechRecognizer createRecognizer(byte[] audio) {
+        return new FakeSpeechRecognizer(this, newRandom(), audio);
+    }
+
+    // Recognizes a 16 kHz, 16-bit, mono wave file.
+    public FakeSpeechRecognizer createRecognizer(File file) throws IOException {
+        byte[] audio = readAudio(file);
+        if (audio == null) {
+            throw new IOException("Not a 16 kHz 16-bit mono wave file: " + file);
+        }
+        return createRecognizer(audio);
+    }
+
+    public int getAudioFileCount() {
+        return audioFiles.size();
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    Config getConfig() {
+        return config;
+    }
+
+    int getBytesPerSecond() {
+        return BYTES_PER_SECOND;
+    }
+
+    ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
+    // Fills target from the concatenated audio files, starting at offset and
+    // wrapping around at the end.
+    void copyAudio(long offset, byte[] target) {
+        long position = offset % totalAudioBytes;
+        int written = 0;
+        while (written < target.length) {
+            for (byte[] file : audioFiles) {
+                if (position >= file.length) {
+                    position -= file.length;
+                    continue;
+                }
+                int count = (int) Math.min(file.length - position, target.length - written);
+                System.arraycopy(file, (int) position, target, written, count);
+                written += count;
+                position = 0;
+                if (written == target.length) {
+                    break;
+                }
+            }
+        }
+    }
+
+    // Converts an amount of audio to the wall clock time it takes at the given speed.
+    long toDelayMillis(long audioBytes, double speed) {
+        if (speed == 0) {
+            return 0;
+        }
+        return (long) (audioBytes * 1000.0 / BYTES_PER_SECOND / speed);
+    }
+
+    // region helper functions
+    private Random newRandom() {
+        // Scrambled, because Randoms with consecutive seeds start with nearly
+        // the same draws, which made every fake fail or succeed alike.
+        long seed = config.getSeed() * 31 + instances.getAndIncrement();
+        seed = (seed ^ (seed >>> 33)) * 0xff51afd7ed558ccdL;
+        seed = (seed ^ (seed >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return new Random(seed ^ (seed >>> 33));
+    }
+
+    // Returns null for files that are not wave files or not in the default input format.
+    private static byte[] readAudio(File file) throws IOException {
+        try (InputStream stream = new FileInputStream(file)) {
+            WavHeaderParser parser = new WavHeaderParser(stream);
+            WavFormat format;
+            try {
+                format = parser.parse();
+            } catch (IllegalArgumentException e) {
+                // A malformed or non-RIFF file.
+                return null;
+            }
+            if (!format.isDefaultInputFormat() || format.getDataLength() == WavFormat.UNKNOWN_LENGTH
+                || format.getDataLength() > Integer.MAX_VALUE) {
+                return null;
+            }
+
+            byte[] data = new byte[(int) format.getDataLength()];
+            InputStream dataStream = parser.getDataStream();
+            int offset = 0;
+            int numRead;
+            while (offset < data.length && (numRead = dataStream.read(data, offset, data.length - offset)) > 0) {
+                offset += numRead;
+            }
+            return offset == data.length ? data : Arrays.copyOf(data, offset);
+        }
+    }
+    // endregion
+
+    private static void ThrowIfFalse(Boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+}
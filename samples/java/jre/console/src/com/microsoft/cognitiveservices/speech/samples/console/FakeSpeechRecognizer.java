@@ -0,0 +1,316 @@
+package com.microsoft.cognitiveservices.speech.samples.console;
+
+//
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE.md file in the project root for full license information.
+//
+
+import com.microsoft.cognitiveservices.speech.CancellationErrorCode;
+import com.microsoft.cognitiveservices.speech.CancellationReason;
+import com.microsoft.cognitiveservices.speech.ResultReason;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+// Offline stand-in for a SpeechRecognizer reading a wave file, created by
+// FakeSpeechBackend.
+//
+// startContinuousRecognitionAsync() raises sessionStarted and then walks
+// through the audio: a recognizing event every recognizingIntervalMillis of
+// audio, a recognized event at the end of every segment, and at the end of
+// the audio canceled (EndOfStream) followed by sessionStopped, as the SDK does
+// for file input. stopContinuousRecognitionAsync() ends the session early.
+// The text is made up; offsets and durations match the audio.
+public class FakeSpeechRecognizer implements AutoCloseable {
+
+    private static final String[] WORDS = ("the speech service converts audio to text and text to natural sounding speech "
+        + "it also translates spoken audio and recognizes who is speaking").split(" ");
+    private static final long TICKS_PER_SECOND = 10000000;
+
+    // Same getters as SpeechRecognitionResult.
+    public static class Result implements AutoCloseable {
+        private final String resultId;
+        private final ResultReason reason;
+        private final String text;
+        private final long offsetTicks;
+        private final long durationTicks;
+
+        Result(String resultId, ResultReason reason, String text, long offsetTicks, long durationTicks) {
+            this.resultId = resultId;
+            this.reason = reason;
+            this.text = text;
+            this.offsetTicks = offsetTicks;
+            this.durationTicks = durationTicks;
+        }
+
+        public String getResultId() {
+            return resultId;
+        }
+
+        public ResultReason getReason() {
+            return reason;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        // In 100 ns ticks from the start of the audio.
+        public BigInteger getOffset() {
+            return BigInteger.valueOf(offsetTicks);
+        }
+
+        // In 100 ns ticks.
+        public BigInteger getDuration() {
+            return BigInteger.valueOf(durationTicks);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    public static class SessionEventArgs {
+        private final String sessionId;
+
+        SessionEventArgs(String sessionId) {
+            this.sessionId = sessionId;
+        }
+
+        public String getSessionId() {
+            return sessionId;
+        }
+    }
+
+    public static class EventArgs extends SessionEventArgs {
+        private final Result result;
+
+        EventArgs(String sessionId, Result result) {
+            super(sessionId);
+            this.result = result;
+        }
+
+        public Result getResult() {
+            return result;
+        }
+
+        public BigInteger getOffset() {
+            return result.getOffset();
+        }
+    }
+
+    public static class CanceledEventArgs extends EventArgs {
+        private final CancellationReason reason;
+        private final CancellationErrorCode errorCode;
+        private final String errorDetails;
+
+        CanceledEventArgs(String sessionId, Result result, CancellationReason reason, CancellationErrorCode errorCode, String errorDetails) {
+            super(sessionId, result);
+            this.reason = reason;
+            this.errorCode = errorCode;
+            this.errorDetails = errorDetails;
+        }
+
+        public CancellationReason getReason() {
+            return reason;
+        }
+
+        public CancellationErrorCode getErrorCode() {
+            return errorCode;
+        }
+
+        public String getErrorDetails() {
+            return errorDetails;
+        }
+    }
+
+    public final FakeSpeechBackend.Event<EventArgs> recognizing = new FakeSpeechBackend.Event<>();
+    public final FakeSpeechBackend.Event<EventArgs> recognized = new FakeSpeechBackend.Event<>();
+    public final FakeSpeechBackend.Event<CanceledEventArgs> canceled = new FakeSpeechBackend.Event<>();
+    public final FakeSpeechBackend.Event<SessionEventArgs> sessionStarted = new FakeSpeechBackend.Event<>();
+    public final FakeSpeechBackend.Event<SessionEventArgs> sessionStopped = new FakeSpeechBackend.Event<>();
+
+    private final FakeSpeechBackend backend;
+    private final Random random;
+    private final byte[] audio;
+    private Session session;
+
+    FakeSpeechRecognizer(FakeSpeechBackend backend, Random random, byte[] audio) {
+        this.backend = backend;
+        this.random = random;
+        this.audio = audio;
+    }
+
+    public synchronized CompletableFuture<Void> startContinuousRecognitionAsync() {
+        if (session != null && !session.stopped) {
+            return CompletableFuture.completedFuture(null);
+        }
+        session = new Session();
+        return session.start();
+    }
+
+    public synchronized CompletableFuture<Void> stopContinuousRecognitionAsync() {
+        if (session == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return session.stop();
+    }
+
+    public long getAudioLengthMillis() {
+        return audio.length * 1000L / backend.getBytesPerSecond();
+    }
+
+    @Override
+    public void close() {
+        stopContinuousRecognitionAsync();
+    }
+
+    // region session helper functions
+    private static long toTicks(long bytes, int bytesPerSecond) {
+        return bytes * TICKS_PER_SECOND / bytesPerSecond;
+    }
+
+    // One continuous recognition session. Every step is a task on the
+    // backend's scheduler that schedules the next one, so events of one
+    // session never overlap.
+    private class Session implements Runnable {
+        private final String sessionId = UUID.randomUUID().toString().replace("-", "");
+        private final CompletableFuture<Void> stoppedFuture = new CompletableFuture<>();
+        private final int intervalBytes;
+        private final int segmentBytes;
+        private final long failAt;
+        private long start;
+        private int position;
+        private int segmentStart;
+        private int wordIndex;
+        private int segmentWords;
+        // Extra delay of the whole session caused by recognized event latencies.
+        private long lagMillis;
+        private Result pendingRecognized;
+        private volatile boolean stopped;
+
+        Session() {
+            FakeSpeechBackend.Config config = backend.getConfig();
+            int bytesPerSecond = backend.getBytesPerSecond();
+            this.intervalBytes = (int) (config.getRecognizingIntervalMillis() * bytesPerSecond / 1000) & ~1;
+            this.segmentBytes = (int) (config.getRecognitionSegmentMillis() * bytesPerSecond / 1000) & ~1;
+            this.failAt = random.nextDouble() < config.getRecognitionFailureRate()
+                ? (long) (random.nextDouble() * audio.length)
+                : -1;
+        }
+
+        CompletableFuture<Void> start() {
+            CompletableFuture<Void> started = new CompletableFuture<>();
+            try {
+                backend.getScheduler().execute(() -> {
+                    start = System.nanoTime();
+                    sessionStarted.fire(FakeSpeechRecognizer.this, new SessionEventArgs(sessionId));
+                    started.complete(null);
+                    scheduleNext();
+                });
+            } catch (RejectedExecutionException ex) {
+                started.completeExceptionally(ex);
+            }
+            return started;
+        }
+
+        CompletableFuture<Void> stop() {
+            stopped = true;
+            return stoppedFuture;
+        }
+
+        @Override
+        public void run() {
+            if (stopped) {
+                finish(null);
+                return;
+            }
+
+            if (pendingRecognized != null) {
+                recognized.fire(FakeSpeechRecognizer.this, new EventArgs(sessionId, pendingRecognized));
+                pendingRecognized = null;
+                wordIndex += segmentWords;
+                segmentWords = 0;
+                segmentStart = position;
+
+                if (position == audio.length) {
+                    finish(new CanceledEventArgs(sessionId, result(ResultReason.Canceled, ""), CancellationReason.EndOfStream,
+                        CancellationErrorCode.NoError, ""));
+                    return;
+                }
+                scheduleNext();
+                return;
+            }
+
+            if (failAt >= 0 && position >= failAt) {
+                finish(new CanceledEventArgs(sessionId, result(ResultReason.Canceled, ""), CancellationReason.Error,
+                    CancellationErrorCode.ServiceError, "Fake service error."));
+                return;
+            }
+
+            position = Math.min(position + intervalBytes, audio.length);
+            segmentWords++;
+
+            if (position - segmentStart >= segmentBytes || position == audio.length) {
+                // The recognized event arrives some time after the end of the
+                // segment's audio and holds back the rest of the session.
+                pendingRecognized = result(ResultReason.RecognizedSpeech, text());
+                long latency = backend.getConfig().getRecognitionLatency().nextMillis(random);
+                lagMillis += latency;
+                schedule(latency);
+                return;
+            }
+
+            recognizing.fire(FakeSpeechRecognizer.this, new EventArgs(sessionId, result(ResultReason.RecognizingSpeech, text())));
+            scheduleNext();
+        }
+
+        // The next step is due when the audio up to its position has been
+        // consumed at recognitionSpeed, however long the handlers took.
+        private void scheduleNext() {
+            long next = Math.min(position + intervalBytes, audio.length);
+            long due = backend.toDelayMillis(next, backend.getConfig().getRecognitionSpeed()) + lagMillis;
+            schedule(due - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+
+        private void finish(CanceledEventArgs cancellation) {
+            stopped = true;
+            if (cancellation != null) {
+                canceled.fire(FakeSpeechRecognizer.this, cancellation);
+            }
+            sessionStopped.fire(FakeSpeechRecognizer.this, new SessionEventArgs(sessionId));
+            stoppedFuture.complete(null);
+        }
+
+        private Result result(ResultReason reason, String text) {
+            int bytesPerSecond = backend.getBytesPerSecond();
+            return new Result(UUID.randomUUID().toString().replace("-", ""), reason, text,
+                toTicks(segmentStart, bytesPerSecond), toTicks(position - segmentStart, bytesPerSecond));
+        }
+
+        private String text() {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < segmentWords; i++) {
+                if (i > 0) {
+                    text.append(' ');
+                }
+                text.append(WORDS[(wordIndex + i) % WORDS.length]);
+            }
+            return text.toString();
+        }
+
+        private void schedule(long delayMillis) {
+            try {
+                backend.getScheduler().schedule(this, Math.max(0, delayMillis), TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException ex) {
+                stopped = true;
+                stoppedFuture.complete(null);
+            }
+        }
+    }
+    // endregion
+}
@@ -0,0 +1,243 @@
+package com.microsoft.cognitiveservices.speech.samples.console;
+
+//
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE.md file in the project root for full license information.
+//
+
+import com.microsoft.cognitiveservices.speech.CancellationErrorCode;
+import com.microsoft.cognitiveservices.speech.ResultReason;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+// Offline stand-in for SpeechSynthesizer, created by FakeSpeechBackend.
+//
+// SpeakTextAsync / SpeakSsmlAsync raise SynthesisStarted, one Synthesizing
+// event per audio chunk and then SynthesisCompleted or SynthesisCanceled,
+// before the returned future completes. As with the SDK, requests on one
+// synthesizer run one after the other. The first request pays the connection
+// latency unless openConnection() was called before.
+public class FakeSpeechSynthesizer implements AutoCloseable {
+
+    // Same getters as SpeechSynthesisResult and SpeechSynthesisCancellationDetails.
+    public static class Result implements AutoCloseable {
+        private final String resultId;
+        private final ResultReason reason;
+        private final byte[] audioData;
+        private final CancellationErrorCode errorCode;
+        private final String errorDetails;
+
+        Result(String resultId, ResultReason reason, byte[] audioData, CancellationErrorCode errorCode, String errorDetails) {
+            this.resultId = resultId;
+            this.reason = reason;
+            this.audioData = audioData;
+            this.errorCode = errorCode;
+            this.errorDetails = errorDetails;
+        }
+
+        public String getResultId() {
+            return resultId;
+        }
+
+        public ResultReason getReason() {
+            return reason;
+        }
+
+        // The chunk for Synthesizing events, the whole audio for SynthesisCompleted.
+        public byte[] getAudioData() {
+            return audioData;
+        }
+
+        public long getAudioLength() {
+            return audioData.length;
+        }
+
+        public CancellationErrorCode getErrorCode() {
+            return errorCode;
+        }
+
+        public String getErrorDetails() {
+            return errorDetails;
+        }
+
+        @Override
+        public String toString() {
+            return reason == ResultReason.Canceled
+                ? String.format("CancellationReason:Error, ErrorCode:%s, ErrorDetails:%s", errorCode, errorDetails)
+                : String.format("ResultId:%s, Reason:%s, AudioLength:%d", resultId, reason, audioData.length);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    public static class EventArgs {
+        private final Result result;
+
+        EventArgs(Result result) {
+            this.result = result;
+        }
+
+        public Result getResult() {
+            return result;
+        }
+    }
+
+    public final FakeSpeechBackend.Event<EventArgs> SynthesisStarted = new FakeSpeechBackend.Event<>();
+    public final FakeSpeechBackend.Event<EventArgs> Synthesizing = new FakeSpeechBackend.Event<>();
+    public final FakeSpeechBackend.Event<EventArgs> SynthesisCompleted = new FakeSpeechBackend.Event<>();
+    public final FakeSpeechBackend.Event<EventArgs> SynthesisCanceled = new FakeSpeechBackend.Event<>();
+
+    private static final byte[] NO_AUDIO = new byte[0];
+
+    private final FakeSpeechBackend backend;
+    private final Random random;
+    private CompletableFuture<?> last = CompletableFuture.completedFuture(null);
+    private volatile boolean connected;
+    private volatile boolean closed;
+
+    FakeSpeechSynthesizer(FakeSpeechBackend backend, Random random) {
+        this.backend = backend;
+        this.random = random;
+    }
+
+    public CompletableFuture<Result> SpeakTextAsync(String text) {
+        return speak(text.length());
+    }
+
+    // The markup is not interpreted, only the text between the tags counts.
+    public CompletableFuture<Result> SpeakSsmlAsync(String ssml) {
+        return speak(ssml.replaceAll("<[^>]*>", "").trim().length());
+    }
+
+    // Connects ahead of the first request, like Connection.openConnection. Blocks
+    // for the connection latency.
+    public void openConnection() throws InterruptedException {
+        long latency;
+        synchronized (this) {
+            if (connected) {
+                return;
+            }
+            connected = true;
+            latency = backend.getConfig().getConnectionLatency().nextMillis(random);
+        }
+        Thread.sleep(latency);
+    }
+
+    // Requests still queued or running are canceled.
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    // region synthesis helper functions
+    private synchronized CompletableFuture<Result> speak(int characters) {
+        CompletableFuture<Result> future = new CompletableFuture<>();
+        last.whenComplete((r, e) -> new Synthesis(characters, future).start());
+        last = future;
+        return future;
+    }
+
+    // One request. Each chunk is delivered by a task on the backend's
+    // scheduler that schedules the next one.
+    private class Synthesis implements Runnable {
+        private final String resultId = UUID.randomUUID().toString().replace("-", "");
+        private final CompletableFuture<Result> future;
+        private final byte[] audio;
+        private final int chunkBytes;
+        private final int failAt;
+        private final long start;
+        private final long firstByteMillis;
+        private int position;
+
+        Synthesis(int characters, CompletableFuture<Result> future) {
+            FakeSpeechBackend.Config config = backend.getConfig();
+            this.future = future;
+            this.chunkBytes = config.getSynthesisChunkBytes();
+
+            // Whole samples, at least one chunk.
+            long length = (long) (characters / config.getSynthesisCharactersPerSecond() * backend.getBytesPerSecond()) & ~1L;
+            this.audio = new byte[(int) Math.min(Math.max(length, chunkBytes), Integer.MAX_VALUE - 8)];
+            backend.copyAudio((random.nextInt() & Integer.MAX_VALUE) & ~1L, audio);
+
+            this.failAt = random.nextDouble() < config.getSynthesisFailureRate() ? audio.length / 2 : -1;
+            long firstByte = config.getFirstByteLatency().nextMillis(random);
+            synchronized (FakeSpeechSynthesizer.this) {
+                if (!connected) {
+                    connected = true;
+                    firstByte += config.getConnectionLatency().nextMillis(random);
+                }
+            }
+            this.firstByteMillis = firstByte;
+            this.start = System.nanoTime();
+        }
+
+        void start() {
+            if (closed) {
+                cancel(CancellationErrorCode.RuntimeError, "The synthesizer was closed.");
+                return;
+            }
+            // Events are raised on the backend's threads, never on the caller's.
+            try {
+                backend.getScheduler().execute(() -> {
+                    fire(SynthesisStarted, new Result(resultId, ResultReason.SynthesizingAudioStarted, NO_AUDIO, CancellationErrorCode.NoError, ""));
+                    schedule(firstByteMillis - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                });
+            } catch (RejectedExecutionException ex) {
+                cancel(CancellationErrorCode.RuntimeError, "The backend was closed.");
+            }
+        }
+
+        @Override
+        public void run() {
+            if (closed) {
+                cancel(CancellationErrorCode.RuntimeError, "The synthesizer was closed.");
+                return;
+            }
+            if (failAt >= 0 && position >= failAt) {
+                cancel(CancellationErrorCode.ServiceError, "Fake service error.");
+                return;
+            }
+            if (position == audio.length) {
+                Result result = new Result(resultId, ResultReason.SynthesizingAudioCompleted, audio, CancellationErrorCode.NoError, "");
+                fire(SynthesisCompleted, result);
+                future.complete(result);
+                return;
+            }
+
+            int count = Math.min(chunkBytes, audio.length - position);
+            byte[] chunk = Arrays.copyOfRange(audio, position, position + count);
+            position += count;
+            fire(Synthesizing, new Result(resultId, ResultReason.SynthesizingAudio, chunk, CancellationErrorCode.NoError, ""));
+
+            // Chunks are due at a fixed pace after the first byte, however long the handlers took.
+            long due = firstByteMillis + backend.toDelayMillis(position, backend.getConfig().getSynthesisSpeed());
+            schedule(due - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+
+        private void schedule(long delayMillis) {
+            try {
+                backend.getScheduler().schedule(this, Math.max(0, delayMillis), TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException ex) {
+                cancel(CancellationErrorCode.RuntimeError, "The backend was closed.");
+            }
+        }
+
+        private void cancel(CancellationErrorCode errorCode, String errorDetails) {
+            Result result = new Result(resultId, ResultReason.Canceled, NO_AUDIO, errorCode, errorDetails);
+            fire(SynthesisCanceled, result);
+            future.complete(result);
+        }
+
+        private void fire(FakeSpeechBackend.Event<EventArgs> event, Result result) {
+            event.fire(FakeSpeechSynthesizer.this, new EventArgs(result));
+        }
+    }
+    // endregion
+}
@@ -5,7 +5,6 @@ package com.microsoft.cognitiveservices.speech.samples.console;
 //
 
 import java.io.IOException;
-import java.util.Scanner;
 import java.util.concurrent.ExecutionException;
 
 // <toplevel>
@@ -14,7 +13,6 @@ import com.microsoft.cognitiveservices.speech.audio.*;
 import com.microsoft.cognitiveservices.speech.intent.*;
 // </toplevel>
 
-@SuppressWarnings("resource") // scanner
 public class IntentRecognitionSamples {
 
     // Intent recognition using microphone.
@@ -171,14 +169,18 @@ public class IntentRecognitionSamples {
             }
         });
 
-        // Starts continuous recognition. Uses StopContinuousRecognitionAsync() to stop recognition.
-        recognizer.startContinuousRecognitionAsync().get();
+        // Completes on sessionStopped or canceled of this session only, here at the end of the file.
+        try (RecognitionSession session = RecognitionSession.of(recognizer)) {
+            // Starts continuous recognition. Uses StopContinuousRecognitionAsync() to stop recognition.
+            recognizer.startContinuousRecognitionAsync().get();
 
-        System.out.println("Press any key to stop...");
-        new Scanner(System.in).nextLine();
+            // Waits for completion.
+            SessionSummary summary = session.getCompletion().get();
+            System.out.println(summary);
 
-        // Stops recognition.
-        recognizer.stopContinuousRecognitionAsync().get();
+            // Stops recognition.
+            recognizer.stopContinuousRecognitionAsync().get();
+        }
         // </IntentContinuousRecognitionWithFile>
     }
 }
@@ -0,0 +1,182 @@
+package com.microsoft.cognitiveservices.speech.samples.console;
+
+//
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE.md file in the project root for full license information.
+//
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Thread-safe latency histogram with bounded memory.
+//
+// Values are counted in log-linear buckets in the style of HdrHistogram: each
+// power of two is split into 32 linear sub-buckets, so every recorded value is
+// reported within about 3% of its real value, however many values are
+// recorded. Counters are striped by thread to keep concurrent recorders off
+// each other's cache lines, and record() never allocates.
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private final long highestTrackableValue;
+    private final int bucketCount;
+    private final int stripeMask;
+    // Per stripe: bucketCount counters followed by the sum of the recorded values.
+    private final AtomicLongArray[] stripes;
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+    // Values above highestTrackableValue are counted in the last bucket, min
+    // and max stay exact.
+    public LatencyHistogram(long highestTrackableValue) {
+        if (highestTrackableValue < SUB_BUCKET_COUNT) {
+            throw new IllegalArgumentException("highestTrackableValue");
+        }
+        this.highestTrackableValue = highestTrackableValue;
+        this.bucketCount = indexOf(highestTrackableValue) + 1;
+
+        int stripeCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1) << 1);
+        this.stripeMask = stripeCount - 1;
+        this.stripes = new AtomicLongArray[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new AtomicLongArray(bucketCount + 1);
+        }
+    }
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+
+        AtomicLongArray stripe = stripes[(int) Thread.currentThread().getId() & stripeMask];
+        stripe.incrementAndGet(indexOf(Math.min(value, highestTrackableValue)));
+        stripe.addAndGet(bucketCount, value);
+
+        long current;
+        while (value < (current = min.get()) && !min.compareAndSet(current, value)) {
+            // retry
+        }
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // retry
+        }
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < bucketCount; i++) {
+                count += stripe.get(i);
+            }
+        }
+        return count;
+    }
+
+    // Returns -1 if nothing was recorded.
+    public long getMin() {
+        long value = min.get();
+        return value == Long.MAX_VALUE ? -1 : value;
+    }
+
+    // Returns -1 if nothing was recorded.
+    public long getMax() {
+        long value = max.get();
+        return value == Long.MIN_VALUE ? -1 : value;
+    }
+
+    // Returns -1 if nothing was recorded.
+    public double getMean() {
+        long count = getCount();
+        if (count == 0) {
+            return -1;
+        }
+        long sum = 0;
+        for (AtomicLongArray stripe : stripes) {
+            sum += stripe.get(bucketCount);
+        }
+        return (double) sum / count;
+    }
+
+    // The smallest recorded value (up to bucket precision) that percentile
+    // percent of all values are less than or equal to. Returns -1 if nothing
+    // was recorded.
+    public long getValueAtPercentile(double percentile) {
+        long[] counts = new long[bucketCount];
+        long total = 0;
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < bucketCount; i++) {
+                long count = stripe.get(i);
+                counts[i] += count;
+                total += count;
+            }
+        }
+        if (total == 0) {
+            return -1;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100.0, Math.max(0.0, percentile)) / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < bucketCount; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                // Never report beyond what was actually recorded.
+                return Math.max(getMin(), Math.min(highestValueInBucket(i), getMax()));
+            }
+        }
+        return getMax();
+    }
+
+    public void reset() {
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i <= bucketCount; i++) {
+                stripe.set(i, 0);
+            }
+        }
+        min.set(Long.MAX_VALUE);
+        max.set(Long.MIN_VALUE);
+    }
+
+    // Multi-line report in the format used by the console samples.
+    public String report(String name, String unit) {
+        return String.format(
+            "Count %-22s:%d\n" +
+            "Min %-24s:%d %s\n" +
+            "Max %-24s:%d %s\n" +
+            "Average %-20s:%.1f %s\n" +
+            "50 Percentile %-14s:%d %s\n" +
+            "90 Percentile %-14s:%d %s\n" +
+            "95 Percentile %-14s:%d %s\n" +
+            "99 Percentile %-14s:%d %s\n" +
+            "99.9 Percentile %-12s:%d %s\n",
+            name, getCount(),
+            name, getMin(), unit,
+            name, getMax(), unit,
+            name, getMean(), unit,
+            name, getValueAtPercentile(50), unit,
+            name, getValueAtPercentile(90), unit,
+            name, getValueAtPercentile(95), unit,
+            name, getValueAtPercentile(99), unit,
+            name, getValueAtPercentile(99.9), unit);
+    }
+
+    // region bucket helper functions
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+        return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    private static long highestValueInBucket(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long lowest = (long) (index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+    // endregion
+}
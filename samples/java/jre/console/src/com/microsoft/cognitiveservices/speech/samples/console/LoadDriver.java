@@ -0,0 +1,293 @@
+package com.microsoft.cognitiveservices.speech.samples.console;
+
+//
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE.md file in the project root for full license information.
+//
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Load driver for the server scenario samples.
+//
+// Runs a request body at a target concurrency, optionally paced to a target
+// request rate, first for a warm-up phase whose results are discarded and
+// then for the measured phase. Every request runs on its own thread: a
+// virtual thread on JDK 21 and later, otherwise a thread of a bounded
+// platform pool (Config.maxPlatformThreads), so blocking calls such as
+// SpeakTextAsync(...).get() are fine inside the request body.
+//
+// When a rate is set, request latency is measured from the time the request
+// was scheduled to start, so time spent waiting for a free slot is not hidden
+// from the percentiles.
+public class LoadDriver {
+
+    // The request body. measured is false during the warm-up phase.
+    public interface Request {
+        void run(long sequence, boolean measured) throws Exception;
+    }
+
+    public static class Config {
+        private int concurrency = 64;
+        // 0 runs closed loop: a new request starts as soon as one finishes.
+        private double requestsPerSecond = 0;
+        private long warmUpMillis = TimeUnit.SECONDS.toMillis(10);
+        private long durationMillis = TimeUnit.SECONDS.toMillis(60);
+        private boolean virtualThreads = true;
+        private int maxPlatformThreads = 256;
+
+        public int getConcurrency() {
+            return concurrency;
+        }
+
+        public void setConcurrency(int concurrency) {
+            this.concurrency = concurrency;
+        }
+
+        public double getRequestsPerSecond() {
+            return requestsPerSecond;
+        }
+
+        public void setRequestsPerSecond(double requestsPerSecond) {
+            this.requestsPerSecond = requestsPerSecond;
+        }
+
+        public long getWarmUpMillis() {
+            return warmUpMillis;
+        }
+
+        public void setWarmUpMillis(long warmUpMillis) {
+            this.warmUpMillis = warmUpMillis;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        public void setDurationMillis(long durationMillis) {
+            this.durationMillis = durationMillis;
+        }
+
+        public boolean getVirtualThreads() {
+            return virtualThreads;
+        }
+
+        // Only has an effect on JDK 21 and later.
+        public void setVirtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+        }
+
+        public int getMaxPlatformThreads() {
+            return maxPlatformThreads;
+        }
+
+        // Caps the effective concurrency when running on platform threads.
+        public void setMaxPlatformThreads(int maxPlatformThreads) {
+            this.maxPlatformThreads = maxPlatformThreads;
+        }
+    }
+
+    private final Config config;
+    private final LatencyHistogram latencyMillis = new LatencyHistogram(TimeUnit.MINUTES.toMillis(10));
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong lateStarts = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private volatile String executorName;
+    private volatile long measuredMillis;
+
+    public LoadDriver(Config config) {
+        ThrowIfFalse(config.getConcurrency() > 0, "concurrency must be positive.");
+        ThrowIfFalse(config.getRequestsPerSecond() >= 0, "requestsPerSecond must not be negative.");
+        ThrowIfFalse(config.getWarmUpMillis() >= 0, "warmUpMillis must not be negative.");
+        ThrowIfFalse(config.getDurationMillis() > 0, "durationMillis must be positive.");
+        ThrowIfFalse(config.getMaxPlatformThreads() > 0, "maxPlatformThreads must be positive.");
+        this.config = config;
+    }
+
+    // Runs the warm-up and the measured phase, then waits for all requests
+    // still in flight.
+    public void run(Request request) throws InterruptedException {
+        ExecutorService executor = newRequestExecutor();
+        int slots = executorName.startsWith("virtual")
+            ? config.getConcurrency()
+            : Math.min(config.getConcurrency(), config.getMaxPlatformThreads());
+        Semaphore permits = new Semaphore(slots);
+
+        long intervalNanos = config.getRequestsPerSecond() > 0
+            ? (long) (TimeUnit.SECONDS.toNanos(1) / config.getRequestsPerSecond())
+            : 0;
+        long start = System.nanoTime();
+        long measureStart = start + TimeUnit.MILLISECONDS.toNanos(config.getWarmUpMillis());
+        long end = measureStart + TimeUnit.MILLISECONDS.toNanos(config.getDurationMillis());
+        long nextStart = start;
+        boolean measuring = false;
+
+        System.out.println(String.format("Load driver: %d concurrent requests on %s, %s, warm-up %d ms, duration %d ms.",
+            slots, executorName,
+            intervalNanos > 0 ? String.format("%.1f requests/s", config.getRequestsPerSecond()) : "closed loop",
+            config.getWarmUpMillis(), config.getDurationMillis()));
+
+        try {
+            for (long sequence = 0; ; sequence++) {
+                if (intervalNanos > 0) {
+                    long delay = nextStart - System.nanoTime();
+                    if (delay > 0) {
+                        LockSupport.parkNanos(delay);
+                    }
+                }
+
+                long now = System.nanoTime();
+                if (now - end >= 0) {
+                    break;
+                }
+                if (!measuring && now - measureStart >= 0) {
+                    measuring = true;
+                    System.out.println("Load driver: warm-up done.");
+                }
+
+                if (!permits.tryAcquire()) {
+                    if (measuring && intervalNanos > 0) {
+                        lateStarts.incrementAndGet();
+                    }
+                    if (!permits.tryAcquire(end - now, TimeUnit.NANOSECONDS)) {
+                        break;
+                    }
+                }
+
+                long scheduled = intervalNanos > 0 ? nextStart : System.nanoTime();
+                nextStart += intervalNanos;
+                submit(executor, request, sequence, measuring, scheduled, permits);
+            }
+
+            // Let the requests in flight finish, then the measured phase is over.
+            permits.acquire(slots);
+            permits.release(slots);
+            measuredMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - measureStart);
+        } finally {
+            executor.shutdown();
+        }
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    public LatencyHistogram getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public long getSucceededCount() {
+        return succeeded.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    // Measured requests that could not start on schedule because all slots were busy.
+    public long getLateStartCount() {
+        return lateStarts.get();
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight.get();
+    }
+
+    public double getThroughput() {
+        long millis = measuredMillis;
+        return millis <= 0 ? 0 : (succeeded.get() + failed.get()) * 1000.0 / millis;
+    }
+
+    public String report() {
+        return String.format(
+            "Executor                    :%s\n" +
+            "Succeeded / Failed          :%d / %d\n" +
+            "Late Starts                 :%d\n" +
+            "Max In Flight               :%d\n" +
+            "Throughput                  :%.1f requests/s\n",
+            executorName,
+            getSucceededCount(), getFailedCount(),
+            getLateStartCount(),
+            getMaxInFlight(),
+            getThroughput())
+            + latencyMillis.report("Request Latency", "ms");
+    }
+
+    // region executor helper functions
+    private void submit(ExecutorService executor, Request request, long sequence, boolean measured, long scheduled, Semaphore permits) {
+        Runnable task = () -> {
+            int current = inFlight.incrementAndGet();
+            int max;
+            while (current > (max = maxInFlight.get()) && !maxInFlight.compareAndSet(max, current)) {
+                // retry
+            }
+
+            try {
+                request.run(sequence, measured);
+                if (measured) {
+                    succeeded.incrementAndGet();
+                }
+            } catch (Exception e) {
+                if (measured) {
+                    failed.incrementAndGet();
+                }
+                System.out.println("Request " + sequence + " failed: " + e);
+            } finally {
+                if (measured) {
+                    latencyMillis.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - scheduled));
+                }
+                inFlight.decrementAndGet();
+                permits.release();
+            }
+        };
+
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() is looked up by reflection,
+    // the samples are built for Java 8.
+    private ExecutorService newRequestExecutor() {
+        if (config.getVirtualThreads()) {
+            try {
+                Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                ExecutorService executor = (ExecutorService) method.invoke(null);
+                executorName = "virtual threads";
+                return executor;
+            } catch (ReflectiveOperationException e) {
+                // Before JDK 21, fall through to platform threads.
+            }
+        }
+
+        int threads = Math.min(config.getConcurrency(), config.getMaxPlatformThreads());
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = r -> {
+            Thread thread = new Thread(r, "load-driver-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        executorName = String.format("platform threads (%d)", threads);
+        // The semaphore in run() keeps at most one task per thread, so the queue stays empty.
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), threadFactory);
+    }
+    // endregion
+
+    private static void ThrowIfFalse(Boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+}
@@ -40,6 +40,12 @@ public class Main {
         System.out.println("P. Speech synthesis word boundary event.");
         System.out.println("Q: Speech synthesis server scenario example.");
         System.out.println("R: Speech synthesis with source language auto detection.");
+        System.out.println("S: Speech synthesis streamed through an off-heap ring buffer.");
+        System.out.println("T: Speech synthesis server scenario with non-blocking requests.");
+        System.out.println("U: Speech synthesis server scenario against the offline fake backend.");
+        System.out.println("V: Speech continuous recognition of many files against the offline fake backend.");
+        System.out.println("W: Speech continuous recognition of a folder of files, several at a time.");
+        System.out.println("X: Speech continuous recognition of a folder of files, several at a time, against the offline fake backend.");
 
         System.out.print(prompt);
 
@@ -130,6 +136,24 @@ public class Main {
                 case "r":
                     SpeechSynthesisSamples.synthesisWithSourceLanguageAutoDetectionAsync();
                     break;
+                case "s":
+                    SpeechSynthesisSamples.synthesisToRingBufferStreamAsync();
+                    break;
+                case "t":
+                    SpeechSynthesisScenarioSamples.synthesisServerScenarioNonBlockingAsync();
+                    break;
+                case "u":
+                    SpeechSynthesisScenarioSamples.synthesisServerScenarioOfflineAsync();
+                    break;
+                case "v":
+                    SpeechRecognitionSamples.continuousRecognitionOfflineAsync();
+                    break;
+                case "w":
+                    SpeechRecognitionSamples.continuousRecognitionOfManyFilesAsync();
+                    break;
+                case "x":
+                    SpeechRecognitionSamples.continuousRecognitionOfManyFilesOfflineAsync();
+                    break;
                 case "0":
                     System.out.println("Exiting...");
                     break;
@@ -0,0 +1,111 @@
+package com.microsoft.cognitiveservices.speech.samples.console;
+
+//
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE.md file in the project root for full license information.
+//
+
+import com.microsoft.cognitiveservices.speech.audio.PullAudioInputStreamCallback;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// File-backed alternative to WavStream. The file is memory-mapped, the data
+// chunk is located once, and read() copies straight from the mapping into the
+// buffer handed in by the SDK, without an InputStream or an extra copy in
+// between. Files larger than one mapping window (including RF64 files beyond
+// 4 GB) are served through consecutive windows.
+public class MappedWavStream extends PullAudioInputStreamCallback {
+    private static final long WINDOW_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final WavFormat format;
+    private MappedByteBuffer window;
+    // File offset of the first byte after the current window.
+    private long windowEnd;
+    // File offset of the first byte after the audio data.
+    private final long dataEnd;
+
+    public MappedWavStream(String fileName) throws IOException {
+        this(Paths.get(fileName));
+    }
+
+    public MappedWavStream(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long fileSize = channel.size();
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(fileSize, WINDOW_SIZE));
+            this.format = WavHeaderParser.parse(header);
+            ThrowIfFalse(format.isDefaultInputFormat(), "unsupported format " + format);
+
+            long dataOffset = format.getDataOffset();
+            long dataLength = format.getDataLength();
+            if (dataLength == WavFormat.UNKNOWN_LENGTH || dataOffset + dataLength > fileSize) {
+                dataLength = fileSize - dataOffset;
+            }
+            this.dataEnd = dataOffset + dataLength;
+
+            if (dataEnd <= header.capacity()) {
+                // Common case: the whole file fits into the header mapping.
+                header.limit((int) dataEnd);
+                header.position((int) dataOffset);
+                this.window = header;
+                this.windowEnd = dataEnd;
+            } else {
+                map(dataOffset);
+            }
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    public WavFormat getFormat() {
+        return format;
+    }
+
+    @Override
+    public int read(byte[] dataBuffer) {
+        try {
+            if (!window.hasRemaining()) {
+                if (windowEnd >= dataEnd) {
+                    return 0;
+                }
+                map(windowEnd);
+            }
+        } catch (IOException ex) {
+            System.out.println("Read " + ex);
+            return 0;
+        }
+
+        int count = Math.min(dataBuffer.length, window.remaining());
+        window.get(dataBuffer, 0, count);
+        return count;
+    }
+
+    @Override
+    public void close() {
+        try {
+            // The mapping itself is released once the buffer is collected.
+            channel.close();
+        } catch (IOException ex) {
+            // ignored
+        }
+    }
+
+    private void map(long offset) throws IOException {
+        long size = Math.min(WINDOW_SIZE, dataEnd - offset);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+        windowEnd = offset + size;
+    }
+
+    private static void ThrowIfFalse(Boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+}
@@ -2,22 +2,56 @@ package com.microsoft.cognitiveservices.speech.samples.console;
 
 import com.microsoft.cognitiveservices.speech.audio.PushAudioOutputStreamCallback;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+// Collects the synthesized audio in a list of segments. Every write() copies
+// the chunk once into the tail segment, so collecting is linear in the audio
+// length, and the collected audio can be read back through views without
+// copying it again.
 public class PushAudioOutputStreamSampleCallback extends PushAudioOutputStreamCallback {
+    private static final int FIRST_SEGMENT_SIZE = 16 * 1024;
+    private static final int MAX_SEGMENT_SIZE = 1024 * 1024;
+
     public PushAudioOutputStreamSampleCallback() {
-        this.audioData = new byte[0];
+        this(true);
+    }
+
+    public PushAudioOutputStreamSampleCallback(boolean logWrites) {
+        this.logWrites = logWrites;
+        this.segments = new ArrayList<>();
+        this.length = 0;
     }
 
     @Override
-    public int write(byte[] dataBuffer)
+    public synchronized int write(byte[] dataBuffer)
     {
-        byte[] updatedAudioData = new byte[audioData.length + dataBuffer.length];
-        System.arraycopy(audioData, 0, updatedAudioData, 0, audioData.length);
-        System.arraycopy(dataBuffer, 0, updatedAudioData, audioData.length, dataBuffer.length);
-
-        audioData = updatedAudioData;
-        
-        System.out.println(dataBuffer.length + " bytes received.");
-        
+        int offset = 0;
+        while (offset < dataBuffer.length) {
+            if (tail == null || tailLength == tail.length) {
+                // Segments double in size, so short utterances stay small and
+                // long documents need only a few hundred segments.
+                int size = tail == null ? FIRST_SEGMENT_SIZE : Math.min(tail.length * 2, MAX_SEGMENT_SIZE);
+                tail = new byte[size];
+                tailLength = 0;
+                segments.add(tail);
+            }
+
+            int count = Math.min(dataBuffer.length - offset, tail.length - tailLength);
+            System.arraycopy(dataBuffer, offset, tail, tailLength, count);
+            tailLength += count;
+            offset += count;
+        }
+        length += dataBuffer.length;
+
+        if (logWrites) {
+            System.out.println(dataBuffer.length + " bytes received.");
+        }
+
         return dataBuffer.length;
     }
 
@@ -27,10 +61,114 @@ public class PushAudioOutputStreamSampleCallback extends PushAudioOutputStreamCa
         System.out.println("Push audio output stream closed.");
     }
 
-    public byte[] getAudioData()
+    public synchronized long getAudioLength()
     {
+        return length;
+    }
+
+    // Copies all audio received so far into one array. Prefer getAudioBuffers()
+    // or getAudioStream() for long audio, they do not copy.
+    public synchronized byte[] getAudioData()
+    {
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Audio too large for a single array, use getAudioStream().");
+        }
+
+        byte[] audioData = new byte[(int) length];
+        int offset = 0;
+        for (ByteBuffer buffer : getAudioBuffers()) {
+            int count = buffer.remaining();
+            buffer.get(audioData, offset, count);
+            offset += count;
+        }
         return audioData;
     }
 
-    private byte[] audioData;
+    // Read-only views on the audio received so far, in order.
+    public synchronized List<ByteBuffer> getAudioBuffers()
+    {
+        List<ByteBuffer> buffers = new ArrayList<>(segments.size());
+        for (byte[] segment : segments) {
+            int count = segment == tail ? tailLength : segment.length;
+            buffers.add(ByteBuffer.wrap(segment, 0, count).asReadOnlyBuffer());
+        }
+        return buffers;
+    }
+
+    // A stream over the audio received so far, reading directly from the segments.
+    public InputStream getAudioStream()
+    {
+        return new SegmentInputStream(getAudioBuffers());
+    }
+
+    public synchronized void writeTo(OutputStream outputStream) throws IOException
+    {
+        for (byte[] segment : segments) {
+            outputStream.write(segment, 0, segment == tail ? tailLength : segment.length);
+        }
+    }
+
+    private static class SegmentInputStream extends InputStream {
+        private final List<ByteBuffer> buffers;
+        private int index;
+
+        SegmentInputStream(List<ByteBuffer> buffers) {
+            this.buffers = buffers;
+        }
+
+        @Override
+        public int read() {
+            ByteBuffer buffer = current();
+            return buffer == null ? -1 : buffer.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            ByteBuffer buffer = current();
+            if (buffer == null) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = 0;
+            ByteBuffer buffer;
+            while (skipped < n && (buffer = current()) != null) {
+                int count = (int) Math.min(n - skipped, buffer.remaining());
+                buffer.position(buffer.position() + count);
+                skipped += count;
+            }
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            ByteBuffer buffer = current();
+            return buffer == null ? 0 : buffer.remaining();
+        }
+
+        private ByteBuffer current() {
+            while (index < buffers.size()) {
+                ByteBuffer buffer = buffers.get(index);
+                if (buffer.hasRemaining()) {
+                    return buffer;
+                }
+                index++;
+            }
+            return null;
+        }
+    }
+
+    private final boolean logWrites;
+    private final List<byte[]> segments;
+    private byte[] tail;
+    private int tailLength;
+    private long length;
 }
@@ -0,0 +1,194 @@
+package com.microsoft.cognitiveservices.speech.samples.console;
+
+//
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE.md file in the project root for full license information.
+//
+
+import com.microsoft.cognitiveservices.speech.audio.PushAudioInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Moves audio from an InputStream or a ReadableByteChannel into a
+// PushAudioInputStream, in chunks of Config.chunkMillis of audio.
+//
+// With a speed of 1 every chunk is written when a live source would have
+// delivered it, that is once its last byte has been "recorded"; with a speed of
+// N, N times as fast; with 0 as fast as the input can be read. Chunks are due
+// at fixed times from the start, so a late chunk does not delay the ones after
+// it.
+//
+// Chunks are read into buffers of exactly the chunk size, taken from a pool
+// shared by all pumps of this instance. PushAudioInputStream.write() copies
+// the data before returning, so a buffer is reused for the next chunk right
+// away: pumping does not allocate per chunk. Only the last chunk of an input,
+// if shorter, is copied into an array of its own size.
+public class PushStreamPump {
+
+    public static class Config {
+        // 16 kHz, 16-bit, mono: the default format of push streams.
+        private int bytesPerSecond = 32000;
+        private int blockAlign = 2;
+        private int chunkMillis = 100;
+        // 1 for real time, 0 for unthrottled.
+        private double speed = 1;
+
+        public int getBytesPerSecond() {
+            return bytesPerSecond;
+        }
+
+        public void setBytesPerSecond(int bytesPerSecond) {
+            this.bytesPerSecond = bytesPerSecond;
+        }
+
+        public int getBlockAlign() {
+            return blockAlign;
+        }
+
+        // Size of one sample frame; chunks hold whole frames.
+        public void setBlockAlign(int blockAlign) {
+            this.blockAlign = blockAlign;
+        }
+
+        // Takes bytesPerSecond and blockAlign from the format of a wave file.
+        public void setFormat(WavFormat format) {
+            this.bytesPerSecond = format.getAvgBytesPerSec();
+            this.blockAlign = format.getBlockAlign();
+        }
+
+        public int getChunkMillis() {
+            return chunkMillis;
+        }
+
+        public void setChunkMillis(int chunkMillis) {
+            this.chunkMillis = chunkMillis;
+        }
+
+        public double getSpeed() {
+            return speed;
+        }
+
+        // 1 paces the audio at real time, N at N times real time, 0 not at all.
+        public void setSpeed(double speed) {
+            this.speed = speed;
+        }
+    }
+
+    // Pauses between reads of a non-blocking channel that has no data.
+    private static final long MIN_IDLE_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long MAX_IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final Config config;
+    private final int chunkBytes;
+    private final ConcurrentLinkedQueue<byte[]> buffers = new ConcurrentLinkedQueue<>();
+
+    public PushStreamPump(Config config) {
+        ThrowIfFalse(config.getBytesPerSecond() > 0, "bytesPerSecond must be positive.");
+        ThrowIfFalse(config.getBlockAlign() > 0, "blockAlign must be positive.");
+        ThrowIfFalse(config.getChunkMillis() > 0, "chunkMillis must be positive.");
+        ThrowIfFalse(config.getSpeed() >= 0, "speed must not be negative.");
+        this.config = config;
+        long bytes = (long) config.getBytesPerSecond() * config.getChunkMillis() / 1000;
+        bytes -= bytes % config.getBlockAlign();
+        this.chunkBytes = (int) Math.max(config.getBlockAlign(), bytes);
+    }
+
+    public int getChunkBytes() {
+        return chunkBytes;
+    }
+
+    // Pumps the input to its end and returns the number of bytes written. Does
+    // not close either stream.
+    public long pump(InputStream in, PushAudioInputStream out) throws IOException, InterruptedException {
+        return pump(buffer -> {
+            int count = 0;
+            int read;
+            while (count < buffer.length && (read = in.read(buffer, count, buffer.length - count)) > 0) {
+                count += read;
+            }
+            return count;
+        }, out);
+    }
+
+    // Pumps the channel to its end and returns the number of bytes written.
+    // Does not close either side. A non-blocking channel that has no data yet
+    // is polled again after a pause that doubles up to MAX_IDLE_NANOS, rather
+    // than in a busy loop; a blocking channel is the better fit for it.
+    public long pump(ReadableByteChannel in, PushAudioInputStream out) throws IOException, InterruptedException {
+        return pump(buffer -> {
+            ByteBuffer target = ByteBuffer.wrap(buffer);
+            long idleNanos = MIN_IDLE_NANOS;
+            int read;
+            while (target.hasRemaining() && (read = in.read(target)) >= 0) {
+                if (read > 0) {
+                    idleNanos = MIN_IDLE_NANOS;
+                    continue;
+                }
+                LockSupport.parkNanos(idleNanos);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                idleNanos = Math.min(idleNanos * 2, MAX_IDLE_NANOS);
+            }
+            return target.position();
+        }, out);
+    }
+
+    // region pump helper functions
+    private interface ChunkReader {
+        // Fills the buffer unless the input ends first; returns the number of bytes read.
+        int read(byte[] buffer) throws IOException, InterruptedException;
+    }
+
+    private long pump(ChunkReader reader, PushAudioInputStream out) throws IOException, InterruptedException {
+        byte[] buffer = buffers.poll();
+        if (buffer == null) {
+            buffer = new byte[chunkBytes];
+        }
+        try {
+            long start = System.nanoTime();
+            long total = 0;
+            int count;
+            while ((count = reader.read(buffer)) > 0) {
+                total += count;
+                waitUntilDue(start, total);
+                out.write(count == buffer.length ? buffer : Arrays.copyOf(buffer, count));
+                if (count < buffer.length) {
+                    break;
+                }
+            }
+            return total;
+        } finally {
+            buffers.offer(buffer);
+        }
+    }
+
+    // Waits until the audio up to position would have been recorded.
+    private void waitUntilDue(long start, long position) throws InterruptedException {
+        if (config.getSpeed() == 0) {
+            return;
+        }
+        long due = start + (long) (position * 1e9 / config.getBytesPerSecond() / config.getSpeed());
+        long remaining;
+        while ((remaining = due - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+    // endregion
+
+    private static void ThrowIfFalse(Boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+}
@@ -0,0 +1,380 @@
+package com.microsoft.cognitiveservices.speech.samples.console;
+
+//
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE.md file in the project root for full license information.
+//
+
+import com.microsoft.cognitiveservices.speech.CancellationReason;
+import com.microsoft.cognitiveservices.speech.ResultReason;
+import com.microsoft.cognitiveservices.speech.SpeechConfig;
+import com.microsoft.cognitiveservices.speech.SpeechRecognizer;
+import com.microsoft.cognitiveservices.speech.audio.AudioConfig;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Continuous recognition of many wave files, at most Config.concurrency at a
+// time.
+//
+// Every file gets its own recognizer, started by an Engine. Its session ends on
+// sessionStopped or canceled, whichever comes first, rather than on console
+// input, and frees its slot for the next file. Recognized results go to a Sink
+// as they arrive, on the recognizers' threads. Recognizers are closed on the
+// thread that called run(), never from inside their own event handlers.
+//
+// The files come from a directory (its *.wav files, sorted by name) or from a
+// manifest (one path per line, relative to the manifest's directory; blank
+// lines and lines starting with # are ignored), see listFiles().
+public class RecognitionRunner {
+
+    // Receives the results of all sessions, from several threads at once.
+    public interface Sink {
+        void onRecognized(File file, long offsetTicks, long durationTicks, String text);
+
+        // Called once per file. errorDetails is null if the file was recognized to its end.
+        default void onFileDone(File file, String errorDetails) {
+        }
+    }
+
+    // Starts continuous recognition of a file, reporting its events to the
+    // session. Closing the returned recognition stops it and frees its resources.
+    public interface Engine {
+        AutoCloseable start(File file, Session session) throws Exception;
+    }
+
+    public static class Config {
+        private int concurrency = 2 * Runtime.getRuntime().availableProcessors();
+        private long sessionTimeoutMillis = TimeUnit.MINUTES.toMillis(30);
+
+        public int getConcurrency() {
+            return concurrency;
+        }
+
+        public void setConcurrency(int concurrency) {
+            this.concurrency = concurrency;
+        }
+
+        public long getSessionTimeoutMillis() {
+            return sessionTimeoutMillis;
+        }
+
+        // 0 lets sessions run as long as they take.
+        public void setSessionTimeoutMillis(long sessionTimeoutMillis) {
+            this.sessionTimeoutMillis = sessionTimeoutMillis;
+        }
+    }
+
+    // The recognition of one file. Engines call its methods from the event handlers of the recognizer.
+    public final class Session {
+        private final File file;
+        private final Sink sink;
+        private final AtomicBoolean done = new AtomicBoolean();
+        private long audioMillis;
+        private long startNanos;
+        private ScheduledFuture<?> timeout;
+        // Only touched on the thread running run().
+        private AutoCloseable recognition;
+
+        Session(File file, Sink sink) {
+            this.file = file;
+            this.sink = sink;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public void recognized(long offsetTicks, long durationTicks, String text) {
+            if (!done.get()) {
+                sink.onRecognized(file, offsetTicks, durationTicks, text);
+            }
+        }
+
+        // errorDetails is null for the end of the audio.
+        public void canceled(String errorDetails) {
+            finish(errorDetails);
+        }
+
+        public void stopped() {
+            finish(null);
+        }
+
+        private void finish(String errorDetails) {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+            if (errorDetails == null) {
+                recognizedFiles.incrementAndGet();
+                recognizedAudioMillis.addAndGet(audioMillis);
+                sessionTimes.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+            } else {
+                failedFiles.incrementAndGet();
+            }
+            try {
+                sink.onFileDone(file, errorDetails);
+            } finally {
+                finished.add(this);
+                permits.release();
+            }
+        }
+    }
+
+    private final Config config;
+    private final Engine engine;
+    private final Semaphore permits;
+    private final ConcurrentLinkedQueue<Session> finished = new ConcurrentLinkedQueue<>();
+    private final AtomicLong recognizedFiles = new AtomicLong();
+    private final AtomicLong failedFiles = new AtomicLong();
+    private final AtomicLong recognizedAudioMillis = new AtomicLong();
+    private final LatencyHistogram sessionTimes = new LatencyHistogram(TimeUnit.HOURS.toMillis(24));
+    private volatile long wallMillis;
+
+    public RecognitionRunner(Engine engine, Config config) {
+        ThrowIfFalse(config.getConcurrency() > 0, "concurrency must be positive.");
+        ThrowIfFalse(config.getSessionTimeoutMillis() >= 0, "sessionTimeoutMillis must not be negative.");
+        this.config = config;
+        this.engine = engine;
+        this.permits = new Semaphore(config.getConcurrency());
+    }
+
+    // Recognizes the files and returns when every session has ended and every recognizer is closed.
+    public void run(List<File> files, Sink sink) throws InterruptedException {
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "recognition-runner-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long start = System.nanoTime();
+        try {
+            for (File file : files) {
+                permits.acquire();
+                closeFinished();
+                start(file, sink, timer);
+            }
+            permits.acquire(config.getConcurrency());
+            permits.release(config.getConcurrency());
+            closeFinished();
+        } finally {
+            wallMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            timer.shutdownNow();
+        }
+    }
+
+    public long getRecognizedFileCount() {
+        return recognizedFiles.get();
+    }
+
+    public long getFailedFileCount() {
+        return failedFiles.get();
+    }
+
+    // Audio length of the recognized files.
+    public long getAudioMillis() {
+        return recognizedAudioMillis.get();
+    }
+
+    // Wall clock time per second of audio; below 1 is faster than real time.
+    public double getRealTimeFactor() {
+        long audio = getAudioMillis();
+        return audio == 0 ? 0 : (double) wallMillis / audio;
+    }
+
+    public double getFilesPerMinutePerCore() {
+        long millis = wallMillis;
+        return millis == 0 ? 0
+            : (recognizedFiles.get() + failedFiles.get()) * 60000.0 / millis / Runtime.getRuntime().availableProcessors();
+    }
+
+    public String report() {
+        return String.format(
+            "Concurrency                 :%d\n" +
+            "Recognized / Failed Files   :%d / %d\n" +
+            "Audio                       :%.1f s\n" +
+            "Wall Clock                  :%.1f s\n" +
+            "Real-Time Factor            :%.3f\n" +
+            "Files per Minute per Core   :%.1f\n",
+            config.getConcurrency(),
+            getRecognizedFileCount(), getFailedFileCount(),
+            getAudioMillis() / 1000.0,
+            wallMillis / 1000.0,
+            getRealTimeFactor(),
+            getFilesPerMinutePerCore())
+            + sessionTimes.report("Session Time", "ms");
+    }
+
+    // The *.wav files of a directory, or the files listed in a manifest.
+    public static List<File> listFiles(File directoryOrManifest) throws IOException {
+        List<File> files = new ArrayList<>();
+        if (directoryOrManifest.isDirectory()) {
+            File[] wavFiles = directoryOrManifest.listFiles((dir, name) -> name.toLowerCase().endsWith(".wav"));
+            ThrowIfFalse(wavFiles != null, "Cannot list " + directoryOrManifest);
+            Arrays.sort(wavFiles);
+            files.addAll(Arrays.asList(wavFiles));
+            return files;
+        }
+
+        File base = directoryOrManifest.getAbsoluteFile().getParentFile();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(directoryOrManifest), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                File file = new File(line);
+                files.add(file.isAbsolute() ? file : new File(base, line));
+            }
+        }
+        return files;
+    }
+
+    // Writes one tab-separated line per result: file, offset and duration in ticks, text.
+    public static Sink writerSink(Writer out) {
+        return new Sink() {
+            @Override
+            public void onRecognized(File file, long offsetTicks, long durationTicks, String text) {
+                String line = file.getPath() + '\t' + offsetTicks + '\t' + durationTicks + '\t' + text + '\n';
+                synchronized (out) {
+                    try {
+                        out.write(line);
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            }
+
+            @Override
+            public void onFileDone(File file, String errorDetails) {
+                if (errorDetails != null) {
+                    System.out.println("CANCELED: " + file + ": " + errorDetails);
+                }
+            }
+        };
+    }
+
+    // SpeechRecognizers reading the files with AudioConfig.fromWavFileInput.
+    public static Engine speechRecognizers(SpeechConfig speechConfig) {
+        return (file, session) -> {
+            AudioConfig audioInput = AudioConfig.fromWavFileInput(file.getPath());
+            SpeechRecognizer recognizer = new SpeechRecognizer(speechConfig, audioInput);
+            AutoCloseable recognition = () -> {
+                try {
+                    recognizer.stopContinuousRecognitionAsync().get();
+                } finally {
+                    recognizer.close();
+                    audioInput.close();
+                }
+            };
+
+            recognizer.recognized.addEventListener((s, e) -> {
+                if (e.getResult().getReason() == ResultReason.RecognizedSpeech) {
+                    session.recognized(e.getResult().getOffset().longValue(), e.getResult().getDuration().longValue(),
+                        e.getResult().getText());
+                }
+            });
+            recognizer.canceled.addEventListener((s, e) ->
+                session.canceled(e.getReason() == CancellationReason.Error ? e.getErrorCode() + ": " + e.getErrorDetails() : null));
+            recognizer.sessionStopped.addEventListener((s, e) -> session.stopped());
+
+            try {
+                recognizer.startContinuousRecognitionAsync().get();
+            } catch (Exception e) {
+                recognition.close();
+                throw e;
+            }
+            return recognition;
+        };
+    }
+
+    // Offline FakeSpeechRecognizers, to measure the runner without a subscription key.
+    public static Engine fakeRecognizers(FakeSpeechBackend backend) {
+        return (file, session) -> {
+            FakeSpeechRecognizer recognizer = backend.createRecognizer(file);
+            recognizer.recognized.addEventListener((s, e) -> {
+                if (e.getResult().getReason() == ResultReason.RecognizedSpeech) {
+                    session.recognized(e.getResult().getOffset().longValue(), e.getResult().getDuration().longValue(),
+                        e.getResult().getText());
+                }
+            });
+            recognizer.canceled.addEventListener((s, e) ->
+                session.canceled(e.getReason() == CancellationReason.Error ? e.getErrorCode() + ": " + e.getErrorDetails() : null));
+            recognizer.sessionStopped.addEventListener((s, e) -> session.stopped());
+
+            try {
+                recognizer.startContinuousRecognitionAsync().get();
+            } catch (Exception e) {
+                recognizer.close();
+                throw e;
+            }
+            return recognizer;
+        };
+    }
+
+    // region session helper functions
+    private void start(File file, Sink sink, ScheduledExecutorService timer) {
+        Session session = new Session(file, sink);
+        try {
+            session.audioMillis = audioLengthMillis(file);
+            session.startNanos = System.nanoTime();
+            if (config.getSessionTimeoutMillis() > 0) {
+                session.timeout = timer.schedule(() -> session.finish("Timed out."), config.getSessionTimeoutMillis(), TimeUnit.MILLISECONDS);
+            }
+            session.recognition = engine.start(file, session);
+        } catch (Exception e) {
+            session.finish(e.toString());
+        }
+    }
+
+    // Closes the recognizers of the sessions that have ended.
+    private void closeFinished() {
+        Session session;
+        while ((session = finished.poll()) != null) {
+            if (session.recognition == null) {
+                continue;
+            }
+            try {
+                session.recognition.close();
+            } catch (Exception e) {
+                System.out.println("Closing the recognizer of " + session.file + " failed: " + e);
+            }
+        }
+    }
+
+    private static long audioLengthMillis(File file) throws IOException {
+        try (InputStream stream = new FileInputStream(file)) {
+            WavFormat format = new WavHeaderParser(stream).parse();
+            long dataLength = format.getDataLength() != WavFormat.UNKNOWN_LENGTH
+                ? format.getDataLength()
+                : file.length() - format.getDataOffset();
+            return dataLength * 1000 / format.getAvgBytesPerSec();
+        }
+    }
+    // endregion
+
+    private static void ThrowIfFalse(Boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.microsoft.cognitiveservices.speech.samples.console;
+
+//
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE.md file in the project root for full license information.
+//
+
+import com.microsoft.cognitiveservices.speech.CancellationErrorCode;
+import com.microsoft.cognitiveservices.speech.CancellationReason;
+import com.microsoft.cognitiveservices.speech.Recognizer;
+import com.microsoft.cognitiveservices.speech.RecognitionResult;
+import com.microsoft.cognitiveservices.speech.ResultReason;
+import com.microsoft.cognitiveservices.speech.SpeechRecognizer;
+import com.microsoft.cognitiveservices.speech.intent.IntentRecognizer;
+import com.microsoft.cognitiveservices.speech.translation.TranslationRecognizer;
+import com.microsoft.cognitiveservices.speech.util.EventHandler;
+import com.microsoft.cognitiveservices.speech.util.EventHandlerImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// The end of one recognition session as a future, in place of a static
+// Semaphore released by the event handlers, so any number of sessions can run
+// in one JVM.
+//
+// Create the session right before starting recognition; it subscribes to the
+// recognizer's events and completes getCompletion() with a SessionSummary on
+// sessionStopped or canceled, whichever comes first. Counters are kept per
+// session. The future completes on an SDK thread: do not stop or close the
+// recognizer in a dependent stage that runs on that thread, use the *Async
+// variants with an executor, or wait for the future on your own thread.
+//
+// close() removes the session's event listeners, so the recognizer can be
+// reused for another session.
+public final class RecognitionSession implements AutoCloseable {
+    private final long createdNanos = System.nanoTime();
+    private final CompletableFuture<SessionSummary> completion = new CompletableFuture<>();
+    private final List<Runnable> unsubscribers = new ArrayList<>();
+    private final AtomicLong bytesPushed = new AtomicLong();
+    // Guarded by this.
+    private String sessionId;
+    private long startedNanos;
+    private long utterances;
+    private long noMatches;
+    private long firstResultNanos;
+    private long lastRecognizingNanos;
+    private long latencyCount;
+    private long totalLatencyNanos;
+    private long maxLatencyNanos;
+
+    public static RecognitionSession of(SpeechRecognizer recognizer) {
+        RecognitionSession session = new RecognitionSession(recognizer);
+        session.subscribe(recognizer.recognizing, e -> session.onRecognizing());
+        session.subscribe(recognizer.recognized, e -> session.onRecognized(e.getResult()));
+        session.subscribe(recognizer.canceled, e -> session.onCanceled(e.getReason(), e.getErrorCode(), e.getErrorDetails()));
+        return session;
+    }
+
+    public static RecognitionSession of(TranslationRecognizer recognizer) {
+        RecognitionSession session = new RecognitionSession(recognizer);
+        session.subscribe(recognizer.recognizing, e -> session.onRecognizing());
+        session.subscribe(recognizer.recognized, e -> session.onRecognized(e.getResult()));
+        session.subscribe(recognizer.canceled, e -> session.onCanceled(e.getReason(), e.getErrorCode(), e.getErrorDetails()));
+        return session;
+    }
+
+    public static RecognitionSession of(IntentRecognizer recognizer) {
+        RecognitionSession session = new RecognitionSession(recognizer);
+        session.subscribe(recognizer.recognizing, e -> session.onRecognizing());
+        session.subscribe(recognizer.recognized, e -> session.onRecognized(e.getResult()));
+        session.subscribe(recognizer.canceled, e -> session.onCanceled(e.getReason(), e.getErrorCode(), e.getErrorDetails()));
+        return session;
+    }
+
+    private RecognitionSession(Recognizer recognizer) {
+        subscribe(recognizer.sessionStarted, e -> onSessionStarted(e.getSessionId()));
+        subscribe(recognizer.sessionStopped, e -> complete(null, null, null));
+    }
+
+    public CompletableFuture<SessionSummary> getCompletion() {
+        return completion;
+    }
+
+    // Counts bytes written to the recognizer's push stream, such as by a PushStreamPump.
+    public void addBytesPushed(long count) {
+        bytesPushed.addAndGet(count);
+    }
+
+    // The summary so far, also while the session is running.
+    public synchronized SessionSummary getSummary() {
+        return summary(null, null, null);
+    }
+
+    @Override
+    public void close() {
+        List<Runnable> listeners;
+        synchronized (this) {
+            listeners = new ArrayList<>(unsubscribers);
+            unsubscribers.clear();
+        }
+        for (Runnable unsubscriber : listeners) {
+            unsubscriber.run();
+        }
+    }
+
+    // region event handlers
+    private synchronized void onSessionStarted(String id) {
+        sessionId = id;
+        startedNanos = System.nanoTime();
+    }
+
+    private synchronized void onRecognizing() {
+        long now = System.nanoTime();
+        if (firstResultNanos == 0) {
+            firstResultNanos = now;
+        }
+        lastRecognizingNanos = now;
+    }
+
+    private synchronized void onRecognized(RecognitionResult result) {
+        long now = System.nanoTime();
+        if (firstResultNanos == 0) {
+            firstResultNanos = now;
+        }
+        if (lastRecognizingNanos != 0) {
+            long latency = now - lastRecognizingNanos;
+            latencyCount++;
+            totalLatencyNanos += latency;
+            maxLatencyNanos = Math.max(maxLatencyNanos, latency);
+            lastRecognizingNanos = 0;
+        }
+
+        ResultReason reason = result.getReason();
+        if (reason == ResultReason.NoMatch) {
+            noMatches++;
+        } else if (reason == ResultReason.RecognizedSpeech || reason == ResultReason.TranslatedSpeech
+            || reason == ResultReason.RecognizedIntent) {
+            utterances++;
+        }
+    }
+
+    private void onCanceled(CancellationReason reason, CancellationErrorCode errorCode, String errorDetails) {
+        complete(reason, errorCode, errorDetails);
+    }
+    // endregion
+
+    private void complete(CancellationReason reason, CancellationErrorCode errorCode, String errorDetails) {
+        if (completion.isDone()) {
+            return;
+        }
+        SessionSummary summary;
+        synchronized (this) {
+            summary = summary(reason, errorCode, errorDetails);
+        }
+        completion.complete(summary);
+    }
+
+    // Called with the lock held.
+    private SessionSummary summary(CancellationReason reason, CancellationErrorCode errorCode, String errorDetails) {
+        long start = startedNanos != 0 ? startedNanos : createdNanos;
+        return new SessionSummary(
+            sessionId,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - createdNanos),
+            utterances,
+            noMatches,
+            bytesPushed.get(),
+            firstResultNanos == 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(firstResultNanos - start),
+            latencyCount == 0 ? 0 : totalLatencyNanos / 1e6 / latencyCount,
+            maxLatencyNanos / 1e6,
+            reason,
+            errorCode,
+            errorDetails);
+    }
+
+    private <T> void subscribe(EventHandlerImpl<T> event, Consumer<T> handler) {
+        EventHandler<T> listener = (s, e) -> handler.accept(e);
+        event.addEventListener(listener);
+        synchronized (this) {
+            unsubscribers.add(() -> event.removeEventListener(listener));
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package com.microsoft.cognitiveservices.speech.samples.console;
+
+//
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE.md file in the project root for full license information.
+//
+
+import com.microsoft.cognitiveservices.speech.audio.PushAudioOutputStreamCallback;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Push audio output callback that hands synthesized audio to a consumer while
+// synthesis is still running, e.g. to forward it to a client socket.
+//
+// Audio goes through a fixed-size ring buffer in direct (off-heap) memory, so
+// the heap used per request stays flat. There is exactly one producer (the
+// SDK calling write(), or the application forwarding Synthesizing events) and
+// one consumer reading through getInputStream() or getChannel(). The cursors
+// are plain volatile counters; threads only park when the ring is full or
+// empty. What happens when the consumer falls behind is set by the
+// OverflowPolicy.
+//
+// The SDK calls close() when the push stream is closed. When feeding the
+// callback from the Synthesizing event of a pooled synthesizer instead, call
+// close() once SpeakTextAsync has completed so the consumer sees end of stream.
+public class RingBufferAudioOutputStreamCallback extends PushAudioOutputStreamCallback {
+    public enum OverflowPolicy {
+        // The producer waits until the consumer has made room.
+        BLOCK,
+        // A chunk that does not fit as a whole is dropped and counted. Make
+        // the ring larger than the chunks the SDK writes.
+        DROP,
+        // Audio that does not fit is queued in additional direct buffers.
+        GROW
+    }
+
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final ByteBuffer ring;
+    private final int mask;
+    private final OverflowPolicy policy;
+
+    // Only the producer touches writeView, only the consumer touches readView.
+    private final ByteBuffer writeView;
+    private final ByteBuffer readView;
+
+    // Total bytes written to / read from the ring. head <= tail <= head + capacity.
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    // GROW only: chunks that did not fit into the ring, in order. They are
+    // always newer than everything in the ring.
+    private final ConcurrentLinkedQueue<ByteBuffer> overflow = new ConcurrentLinkedQueue<>();
+    private ByteBuffer currentOverflow;
+
+    private volatile boolean closed;
+    private volatile boolean cancelled;
+    private volatile Thread waitingProducer;
+    private volatile Thread waitingConsumer;
+
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong bytesDropped = new AtomicLong();
+    private final AtomicLong bytesOverflowed = new AtomicLong();
+    private final AtomicLong producerWaitNanos = new AtomicLong();
+
+    // capacity is rounded up to the next power of two.
+    public RingBufferAudioOutputStreamCallback(int capacity, OverflowPolicy policy) {
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("capacity");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+
+        this.ring = ByteBuffer.allocateDirect(size);
+        this.mask = size - 1;
+        this.policy = policy;
+        this.writeView = ring.duplicate();
+        this.readView = ring.duplicate();
+    }
+
+    @Override
+    public int write(byte[] dataBuffer) {
+        int offset = 0;
+        int length = dataBuffer.length;
+
+        if (policy == OverflowPolicy.DROP && !cancelled
+            && length > ring.capacity() - (int) (tail.get() - head.get())) {
+            // Whole chunks only: keeping part of one could split a sample and
+            // misalign everything after it.
+            bytesDropped.addAndGet(length);
+            return length;
+        }
+
+        while (offset < length && !cancelled) {
+            if (policy == OverflowPolicy.GROW && !overflow.isEmpty()) {
+                // Keep the order: once spilled, everything goes to the overflow
+                // queue until the consumer has caught up.
+                spill(dataBuffer, offset, length - offset);
+                offset = length;
+                break;
+            }
+
+            int free = ring.capacity() - (int) (tail.get() - head.get());
+            if (free == 0) {
+                if (policy == OverflowPolicy.GROW) {
+                    spill(dataBuffer, offset, length - offset);
+                    offset = length;
+                    break;
+                }
+                awaitSpace();
+                continue;
+            }
+
+            int count = Math.min(free, length - offset);
+            put(dataBuffer, offset, count);
+            offset += count;
+        }
+
+        // Only what was stored; dropped bytes are counted separately.
+        bytesWritten.addAndGet(offset);
+        return length;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(waitingConsumer);
+    }
+
+    // Stops accepting audio, e.g. when the client disconnected. Pending and
+    // future writes return immediately so the SDK is never blocked.
+    public void cancel() {
+        cancelled = true;
+        closed = true;
+        LockSupport.unpark(waitingProducer);
+        LockSupport.unpark(waitingConsumer);
+    }
+
+    public InputStream getInputStream() {
+        return new InputStream() {
+            private final byte[] single = new byte[1];
+
+            @Override
+            public int read() throws IOException {
+                return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                return RingBufferAudioOutputStreamCallback.this.read(ByteBuffer.wrap(b, off, len));
+            }
+
+            @Override
+            public int available() {
+                return (int) Math.min(Integer.MAX_VALUE, tail.get() - head.get());
+            }
+
+            @Override
+            public void close() {
+                cancel();
+            }
+        };
+    }
+
+    // Reading into a direct buffer (e.g. one passed on to a SocketChannel)
+    // copies off-heap to off-heap without touching the heap.
+    public ReadableByteChannel getChannel() {
+        return new ReadableByteChannel() {
+            private volatile boolean open = true;
+
+            @Override
+            public int read(ByteBuffer dst) throws IOException {
+                if (!open) {
+                    throw new ClosedChannelException();
+                }
+                return RingBufferAudioOutputStreamCallback.this.read(dst);
+            }
+
+            @Override
+            public boolean isOpen() {
+                return open;
+            }
+
+            @Override
+            public void close() {
+                open = false;
+                cancel();
+            }
+        };
+    }
+
+    public int getCapacity() {
+        return ring.capacity();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    public long getBytesDropped() {
+        return bytesDropped.get();
+    }
+
+    public long getBytesOverflowed() {
+        return bytesOverflowed.get();
+    }
+
+    public long getProducerWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(producerWaitNanos.get());
+    }
+
+    // region ring buffer helper functions
+    private void put(byte[] source, int offset, int count) {
+        int index = (int) (tail.get() & mask);
+        int first = Math.min(count, ring.capacity() - index);
+
+        writeView.clear();
+        writeView.position(index);
+        writeView.put(source, offset, first);
+        if (first < count) {
+            writeView.position(0);
+            writeView.put(source, offset + first, count - first);
+        }
+
+        // Publishes the bytes to the consumer.
+        tail.addAndGet(count);
+        LockSupport.unpark(waitingConsumer);
+    }
+
+    private void spill(byte[] source, int offset, int count) {
+        ByteBuffer chunk = ByteBuffer.allocateDirect(count);
+        chunk.put(source, offset, count);
+        chunk.flip();
+        overflow.add(chunk);
+        bytesOverflowed.addAndGet(count);
+        LockSupport.unpark(waitingConsumer);
+    }
+
+    // Blocks until at least one byte is available, then reads as much as fits
+    // into dst. Returns -1 at end of stream.
+    private int read(ByteBuffer dst) throws IOException {
+        if (!dst.hasRemaining()) {
+            return 0;
+        }
+
+        while (true) {
+            // Older data first: a partly read overflow chunk, then the ring,
+            // then the overflow queue.
+            if (currentOverflow != null) {
+                int count = transfer(currentOverflow, dst);
+                if (!currentOverflow.hasRemaining()) {
+                    currentOverflow = null;
+                }
+                return count;
+            }
+
+            long available = tail.get() - head.get();
+            if (available > 0) {
+                return take(dst, (int) Math.min(available, dst.remaining()));
+            }
+
+            ByteBuffer chunk = overflow.poll();
+            if (chunk != null) {
+                currentOverflow = chunk;
+                continue;
+            }
+
+            if (cancelled) {
+                throw new IOException("Stream was cancelled.");
+            }
+            if (closed) {
+                // The producer may have published between the checks above and close().
+                if (tail.get() == head.get() && overflow.isEmpty()) {
+                    return -1;
+                }
+                continue;
+            }
+
+            waitingConsumer = Thread.currentThread();
+            if (tail.get() == head.get() && overflow.isEmpty() && !closed) {
+                LockSupport.parkNanos(this, PARK_NANOS);
+            }
+            waitingConsumer = null;
+        }
+    }
+
+    private int take(ByteBuffer dst, int count) {
+        int index = (int) (head.get() & mask);
+        int first = Math.min(count, ring.capacity() - index);
+
+        readView.clear();
+        readView.position(index);
+        readView.limit(index + first);
+        dst.put(readView);
+        if (first < count) {
+            readView.clear();
+            readView.limit(count - first);
+            dst.put(readView);
+        }
+
+        // Hands the space back to the producer.
+        head.addAndGet(count);
+        LockSupport.unpark(waitingProducer);
+        return count;
+    }
+
+    private static int transfer(ByteBuffer src, ByteBuffer dst) {
+        int count = Math.min(src.remaining(), dst.remaining());
+        int limit = src.limit();
+        src.limit(src.position() + count);
+        dst.put(src);
+        src.limit(limit);
+        return count;
+    }
+
+    private void awaitSpace() {
+        long start = System.nanoTime();
+        waitingProducer = Thread.currentThread();
+        if (tail.get() - head.get() == ring.capacity() && !cancelled) {
+            LockSupport.parkNanos(this, PARK_NANOS);
+        }
+        waitingProducer = null;
+        producerWaitNanos.addAndGet(System.nanoTime() - start);
+    }
+    // endregion
+}
@@ -0,0 +1,116 @@
+package com.microsoft.cognitiveservices.speech.samples.console;
+
+//
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE.md file in the project root for full license information.
+//
+
+import com.microsoft.cognitiveservices.speech.CancellationErrorCode;
+import com.microsoft.cognitiveservices.speech.CancellationReason;
+
+// What happened in one RecognitionSession, as of the end of the session.
+public final class SessionSummary {
+    private final String sessionId;
+    private final long durationMillis;
+    private final long utterances;
+    private final long noMatches;
+    private final long bytesPushed;
+    private final long firstResultLatencyMillis;
+    private final double meanFinalResultLatencyMillis;
+    private final double maxFinalResultLatencyMillis;
+    private final CancellationReason cancellationReason;
+    private final CancellationErrorCode errorCode;
+    private final String errorDetails;
+
+    SessionSummary(String sessionId, long durationMillis, long utterances, long noMatches, long bytesPushed,
+                   long firstResultLatencyMillis, double meanFinalResultLatencyMillis, double maxFinalResultLatencyMillis,
+                   CancellationReason cancellationReason, CancellationErrorCode errorCode, String errorDetails) {
+        this.sessionId = sessionId;
+        this.durationMillis = durationMillis;
+        this.utterances = utterances;
+        this.noMatches = noMatches;
+        this.bytesPushed = bytesPushed;
+        this.firstResultLatencyMillis = firstResultLatencyMillis;
+        this.meanFinalResultLatencyMillis = meanFinalResultLatencyMillis;
+        this.maxFinalResultLatencyMillis = maxFinalResultLatencyMillis;
+        this.cancellationReason = cancellationReason;
+        this.errorCode = errorCode;
+        this.errorDetails = errorDetails;
+    }
+
+    // Null if the session ended before the service started it.
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    // From the creation of the RecognitionSession to its end.
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    // Recognized results with speech, translations and intents included.
+    public long getUtterances() {
+        return utterances;
+    }
+
+    public long getNoMatches() {
+        return noMatches;
+    }
+
+    // Audio counted by RecognitionSession.addBytesPushed().
+    public long getBytesPushed() {
+        return bytesPushed;
+    }
+
+    // From the start of the session to its first intermediate or final result, or -1 if there was none.
+    public long getFirstResultLatencyMillis() {
+        return firstResultLatencyMillis;
+    }
+
+    // From the last intermediate result of an utterance to its final result,
+    // over the final results that had intermediate ones.
+    public double getMeanFinalResultLatencyMillis() {
+        return meanFinalResultLatencyMillis;
+    }
+
+    public double getMaxFinalResultLatencyMillis() {
+        return maxFinalResultLatencyMillis;
+    }
+
+    // Null if the session stopped without being canceled.
+    public CancellationReason getCancellationReason() {
+        return cancellationReason;
+    }
+
+    public CancellationErrorCode getErrorCode() {
+        return errorCode;
+    }
+
+    public String getErrorDetails() {
+        return errorDetails;
+    }
+
+    public boolean isError() {
+        return cancellationReason == CancellationReason.Error;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+            "Session                     :%s\n" +
+            "Duration                    :%d ms\n" +
+            "Utterances / No Matches     :%d / %d\n" +
+            "Bytes Pushed                :%d\n" +
+            "First Result Latency        :%d ms\n" +
+            "Final Latency Mean / Max    :%.1f / %.1f ms\n" +
+            "End                         :%s\n",
+            sessionId,
+            durationMillis,
+            utterances, noMatches,
+            bytesPushed,
+            firstResultLatencyMillis,
+            meanFinalResultLatencyMillis, maxFinalResultLatencyMillis,
+            cancellationReason == null ? "Session stopped"
+                : isError() ? "Canceled, " + errorCode + ": " + errorDetails : "Canceled, " + cancellationReason);
+    }
+}
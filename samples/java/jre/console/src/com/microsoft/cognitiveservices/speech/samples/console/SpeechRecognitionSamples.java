@@ -4,14 +4,19 @@ package com.microsoft.cognitiveservices.speech.samples.console;
 // Licensed under the MIT license. See LICENSE.md file in the project root for full license information.
 //
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Scanner;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 
@@ -218,14 +223,9 @@ public class SpeechRecognitionSamples {
         // </recognitionContinuousWithFile>
     }
 
-    // The Source to stop recognition.
-    private static Semaphore stopRecognitionSemaphore;
-
     // Speech recognition with audio stream
     public static void recognitionWithAudioStreamAsync() throws InterruptedException, ExecutionException, FileNotFoundException
     {
-        stopRecognitionSemaphore = new Semaphore(0);
-
         // Creates an instance of a speech config with specified
         // subscription key and service region. Replace with your own subscription key
         // and service region (e.g., "westus").
@@ -261,8 +261,6 @@ public class SpeechRecognitionSamples {
                     System.out.println("CANCELED: ErrorDetails=" + e.getErrorDetails());
                     System.out.println("CANCELED: Did you update the subscription info?");
                 }
-
-                stopRecognitionSemaphore.release();
             });
 
             recognizer.sessionStarted.addEventListener((s, e) -> {
@@ -271,20 +269,20 @@ public class SpeechRecognitionSamples {
 
             recognizer.sessionStopped.addEventListener((s, e) -> {
                 System.out.println("\nSession stopped event.");
-
-                // Stops translation when session stop is detected.
-                System.out.println("\nStop translation.");
-                stopRecognitionSemaphore.release();
             });
 
-            // Starts continuous recognition. Uses stopContinuousRecognitionAsync() to stop recognition.
-            recognizer.startContinuousRecognitionAsync().get();
+            // Completes on sessionStopped or canceled of this session only.
+            try (RecognitionSession session = RecognitionSession.of(recognizer)) {
+                // Starts continuous recognition. Uses stopContinuousRecognitionAsync() to stop recognition.
+                recognizer.startContinuousRecognitionAsync().get();
 
-            // Waits for completion.
-            stopRecognitionSemaphore.acquire();
+                // Waits for completion.
+                SessionSummary summary = session.getCompletion().get();
+                System.out.println(summary);
 
-            // Stops recognition.
-            recognizer.stopContinuousRecognitionAsync().get();
+                // Stops recognition.
+                recognizer.stopContinuousRecognitionAsync().get();
+            }
         }
 
         config.close();
@@ -293,8 +291,8 @@ public class SpeechRecognitionSamples {
     }
 
     // Speech recognition with events from a push stream
-    // This sample takes and existing file and reads it by chunk into a local buffer and then pushes the
-    // buffer into an PushAudioStream for speech recognition.
+    // This sample takes an existing file and pumps its audio data chunk by chunk into a PushAudioStream
+    // for speech recognition, at the speed the audio would be recorded.
     public static void continuousRecognitionWithPushStream() throws InterruptedException, ExecutionException, IOException
     {
         // Creates an instance of a speech config with specified
@@ -346,37 +344,35 @@ public class SpeechRecognitionSamples {
                 System.out.println("\n    Session stopped event.");
             });
 
-            // Starts continuous recognition. Uses stopContinuousRecognitionAsync() to stop recognition.
-            System.out.println("Say something...");
-            recognizer.startContinuousRecognitionAsync().get();
-
-            // Arbitrary buffer size.
-            byte[] readBuffer = new byte[4096];
-
-            // Push audio read from the file into the PushStream.
-            // The audio can be pushed into the stream before, after, or during recognition
-            // and recognition will continue as data becomes available.
-            int bytesRead;
-            while ((bytesRead = inputStream.read(readBuffer)) != -1)
-            {
-                if (bytesRead == readBuffer.length)
-                {
-                    pushStream.write(readBuffer);
-                }
-                else
-                {
-                    // Last buffer read from the WAV file is likely to have less bytes
-                    pushStream.write(Arrays.copyOfRange(readBuffer, 0, bytesRead));
-                }
+            // Completes on sessionStopped or canceled of this session only, here once
+            // the pushed audio is recognized to its end.
+            try (RecognitionSession session = RecognitionSession.of(recognizer)) {
+                // Starts continuous recognition. Uses stopContinuousRecognitionAsync() to stop recognition.
+                System.out.println("Say something...");
+                recognizer.startContinuousRecognitionAsync().get();
+
+                // Push the audio data of the file into the PushStream, 100 ms at a time
+                // and paced at real time, as a live source would deliver it. Set the
+                // speed to 0 to push as fast as the file can be read.
+                // The audio can be pushed into the stream before, after, or during recognition
+                // and recognition will continue as data becomes available.
+                WavHeaderParser parser = new WavHeaderParser(inputStream);
+                PushStreamPump.Config pumpConfig = new PushStreamPump.Config();
+                pumpConfig.setFormat(parser.parse());
+                pumpConfig.setChunkMillis(100);
+                pumpConfig.setSpeed(1);
+                PushStreamPump pump = new PushStreamPump(pumpConfig);
+                session.addBytesPushed(pump.pump(parser.getDataStream(), pushStream));
+
+                pushStream.close();
+                inputStream.close();
+
+                // Waits for completion.
+                SessionSummary summary = session.getCompletion().get();
+                System.out.println(summary);
+
+                recognizer.stopContinuousRecognitionAsync().get();
             }
-
-            pushStream.close();
-            inputStream.close();
-
-            System.out.println("Press any key to stop");
-            new Scanner(System.in).nextLine();
-
-            recognizer.stopContinuousRecognitionAsync().get();
         }
 
         config.close();
@@ -387,8 +383,6 @@ public class SpeechRecognitionSamples {
     // Keyword-triggered speech recognition from microphone
     public static void keywordTriggeredSpeechRecognitionWithMicrophone() throws InterruptedException, ExecutionException
     {
-        stopRecognitionSemaphore = new Semaphore(0);
-
         // Creates an instance of a speech config with specified
         // subscription key and service region. Replace with your own subscription key
         // and service region (e.g., "westus").
@@ -432,8 +426,6 @@ public class SpeechRecognitionSamples {
 
             recognizer.sessionStopped.addEventListener((s, e) -> {
                 System.out.println("\n    Session stopped event.");
-
-                stopRecognitionSemaphore.release();
             });
 
             // Creates an instance of a keyword recognition model. Update this to
@@ -443,16 +435,19 @@ public class SpeechRecognitionSamples {
             // The phrase your keyword recognition model triggers on.
             String keyword = "YourKeyword";
 
-            // Starts continuous recognition using the keyword model. Use
-            // stopKeywordRecognitionAsync() to stop recognition.
-            recognizer.startKeywordRecognitionAsync(model).get();
+            // Completes on sessionStopped or canceled of this session only.
+            try (RecognitionSession session = RecognitionSession.of(recognizer)) {
+                // Starts continuous recognition using the keyword model. Use
+                // stopKeywordRecognitionAsync() to stop recognition.
+                recognizer.startKeywordRecognitionAsync(model).get();
 
-            System.out.println("Say something starting with '" + keyword + "' followed by whatever you want...");
+                System.out.println("Say something starting with '" + keyword + "' followed by whatever you want...");
 
-            // Waits for a single successful keyword-triggered speech recognition (or error).
-            stopRecognitionSemaphore.acquire();
+                // Waits for a single successful keyword-triggered speech recognition (or error).
+                session.getCompletion().get();
 
-            recognizer.stopKeywordRecognitionAsync().get();
+                recognizer.stopKeywordRecognitionAsync().get();
+            }
         }
 
         config.close();
@@ -766,4 +761,87 @@ public class SpeechRecognitionSamples {
             recognizer.close();
         }
     }
+
+    // Continuous recognition of many files at once against the offline fake backend.
+    public static void continuousRecognitionOfflineAsync() throws InterruptedException, IOException
+    {
+        // The recognizers are in-process fakes that walk through the files in sampledata/audiofiles and
+        // raise the same sequence of events as the SDK does for file input, so recognition harnesses can
+        // be measured without a subscription key. The audio is consumed at 10 times real time.
+        FakeSpeechBackend.Config backendConfig = new FakeSpeechBackend.Config();
+        backendConfig.setRecognitionSpeed(10);
+        backendConfig.setRecognitionLatency(FakeSpeechBackend.LatencyModel.logNormal(100, 400));
+        backendConfig.setRecognitionFailureRate(0.05);
+
+        try (FakeSpeechBackend backend = new FakeSpeechBackend(backendConfig)) {
+            // Every file of the sample data 4 times over, all of them recognized at once.
+            List<File> files = repeat(RecognitionRunner.listFiles(new File(backendConfig.getAudioDirectory())), 4);
+
+            AtomicInteger recognizedCount = new AtomicInteger();
+            RecognitionRunner runner = recognizeManyFiles(RecognitionRunner.fakeRecognizers(backend), files, files.size(),
+                (file, offsetTicks, durationTicks, text) -> recognizedCount.incrementAndGet());
+            System.out.println(String.format("Sessions: %d, recognized: %d, errors: %d", files.size(), recognizedCount.get(), runner.getFailedFileCount()));
+        }
+    }
+
+    // Continuous recognition of a folder of files, several at a time, with the results written to a file.
+    public static void continuousRecognitionOfManyFilesAsync() throws InterruptedException, IOException
+    {
+        // Creates an instance of a speech config with specified
+        // subscription key and service region. Replace with your own subscription key
+        // and service region (e.g., "westus").
+        SpeechConfig config = SpeechConfig.fromSubscription("YourSubscriptionKey", "YourServiceRegion");
+
+        // Replace with your own folder of wave files, or with a text file listing one file per line.
+        List<File> files = RecognitionRunner.listFiles(new File("YourAudioFolder"));
+
+        // Every file gets its own recognizer, which ends with its audio; at most 8 run at a time.
+        // Results are written as they are recognized, one tab-separated line each.
+        try (Writer out = new OutputStreamWriter(new FileOutputStream("YourTranscripts.tsv"), StandardCharsets.UTF_8)) {
+            recognizeManyFiles(RecognitionRunner.speechRecognizers(config), files, 8, RecognitionRunner.writerSink(out));
+        }
+
+        config.close();
+    }
+
+    // Continuous recognition of many files, several at a time, against the offline fake backend.
+    public static void continuousRecognitionOfManyFilesOfflineAsync() throws InterruptedException, IOException
+    {
+        // The audio is consumed at 10 times real time; see continuousRecognitionOfflineAsync().
+        FakeSpeechBackend.Config backendConfig = new FakeSpeechBackend.Config();
+        backendConfig.setRecognitionSpeed(10);
+        backendConfig.setRecognitionLatency(FakeSpeechBackend.LatencyModel.logNormal(100, 400));
+        backendConfig.setRecognitionFailureRate(0.05);
+
+        try (FakeSpeechBackend backend = new FakeSpeechBackend(backendConfig)) {
+            // Every file of the sample data, 50 times over.
+            List<File> files = repeat(RecognitionRunner.listFiles(new File(backendConfig.getAudioDirectory())), 50);
+
+            AtomicInteger recognizedCount = new AtomicInteger();
+            recognizeManyFiles(RecognitionRunner.fakeRecognizers(backend), files, 16,
+                (file, offsetTicks, durationTicks, text) -> recognizedCount.incrementAndGet());
+            System.out.println(String.format("Files: %d, recognized: %d", files.size(), recognizedCount.get()));
+        }
+    }
+
+    // The harness of continuousRecognitionOfManyFilesAsync. The offline samples run it with the
+    // recognizers of the fake backend in place of SpeechRecognizers.
+    private static RecognitionRunner recognizeManyFiles(RecognitionRunner.Engine engine, List<File> files, int concurrency,
+                                                        RecognitionRunner.Sink sink) throws InterruptedException
+    {
+        RecognitionRunner.Config runnerConfig = new RecognitionRunner.Config();
+        runnerConfig.setConcurrency(concurrency);
+        RecognitionRunner runner = new RecognitionRunner(engine, runnerConfig);
+        runner.run(files, sink);
+        System.out.println(runner.report());
+        return runner;
+    }
+
+    private static List<File> repeat(List<File> files, int times) {
+        List<File> repeated = new ArrayList<>();
+        for (int i = 0; i < times; i++) {
+            repeated.addAll(files);
+        }
+        return repeated;
+    }
 }
@@ -4,6 +4,8 @@ package com.microsoft.cognitiveservices.speech.samples.console;
 // Licensed under the MIT license. See LICENSE.md file in the project root for full license information.
 //
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Scanner;
 import java.util.concurrent.ExecutionException;
 
@@ -446,11 +448,84 @@ public class SpeechSynthesisSamples {
         synthesizer.close();
         streamConfig.close();
 
-        System.out.println("Totally " + callback.getAudioData().length + " bytes received.");
+        System.out.println("Totally " + callback.getAudioLength() + " bytes received.");
 
         stream.close();
     }
 
+    // Speech synthesis to a push audio output stream that is consumed while synthesis is running.
+    public static void synthesisToRingBufferStreamAsync() throws InterruptedException, ExecutionException
+    {
+        // Creates an instance of a speech config with specified
+        // subscription key and service region. Replace with your own subscription key
+        // and service region (e.g., "westus").
+        // The default language is "en-us".
+        SpeechConfig config = SpeechConfig.fromSubscription("YourSubscriptionKey", "YourServiceRegion");
+
+        // Creates a callback that buffers at most 64 KB of audio in direct memory,
+        // the SDK waits when the consumer falls behind.
+        RingBufferAudioOutputStreamCallback callback = new RingBufferAudioOutputStreamCallback(64 * 1024,
+            RingBufferAudioOutputStreamCallback.OverflowPolicy.BLOCK);
+
+        // Creates an audio out stream from the callback.
+        PushAudioOutputStream stream = AudioOutputStream.createPushStream(callback);
+
+        // Consumes the audio on its own thread, e.g. to forward it to a client socket.
+        final long start = System.currentTimeMillis();
+        final long[] firstByteLatency = {-1};
+        final long[] bytesConsumed = {0};
+        Thread consumer = new Thread(() -> {
+            byte[] buffer = new byte[4096];
+            try (InputStream audio = callback.getInputStream()) {
+                int numRead;
+                while ((numRead = audio.read(buffer, 0, buffer.length)) >= 0) {
+                    if (firstByteLatency[0] < 0) {
+                        firstByteLatency[0] = System.currentTimeMillis() - start;
+                    }
+                    bytesConsumed[0] += numRead;
+                }
+            } catch (IOException ex) {
+                System.out.println("Consumer stopped: " + ex.getMessage());
+            }
+        });
+        consumer.start();
+
+        // Creates a speech synthesizer using audio stream output.
+        AudioConfig streamConfig = AudioConfig.fromStreamOutput(stream);
+        SpeechSynthesizer synthesizer = new SpeechSynthesizer(config, streamConfig);
+        {
+            SpeechSynthesisResult result = synthesizer.SpeakTextAsync("Streaming lets the first audio bytes reach the client while the rest of the sentence is still being synthesized.").get();
+
+            // Checks result.
+            if (result.getReason() == ResultReason.SynthesizingAudioCompleted) {
+                System.out.println("Speech synthesized, and the audio was streamed to the consumer.");
+            }
+            else if (result.getReason() == ResultReason.Canceled) {
+                SpeechSynthesisCancellationDetails cancellation = SpeechSynthesisCancellationDetails.fromResult(result);
+                System.out.println("CANCELED: Reason=" + cancellation.getReason());
+
+                if (cancellation.getReason() == CancellationReason.Error) {
+                    System.out.println("CANCELED: ErrorCode=" + cancellation.getErrorCode());
+                    System.out.println("CANCELED: ErrorDetails=" + cancellation.getErrorDetails());
+                    System.out.println("CANCELED: Did you update the subscription info?");
+                }
+            }
+
+            result.close();
+        }
+
+        synthesizer.close();
+        streamConfig.close();
+        stream.close();
+
+        // Closing the stream closes the callback, the consumer reads to the end and stops.
+        callback.close();
+        consumer.join();
+
+        System.out.println("First byte consumed after " + firstByteLatency[0] + " ms, " + bytesConsumed[0] + " bytes in total, producer waited "
+            + callback.getProducerWaitMillis() + " ms.");
+    }
+
     // Gets synthesized audio data from result.
     public static void synthesisToResultAsync() throws InterruptedException, ExecutionException
     {
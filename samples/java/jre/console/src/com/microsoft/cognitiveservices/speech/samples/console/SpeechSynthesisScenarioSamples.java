@@ -2,132 +2,196 @@ package com.microsoft.cognitiveservices.speech.samples.console;
 
 import com.microsoft.cognitiveservices.speech.*;
 import com.microsoft.cognitiveservices.speech.util.EventHandler;
-import org.apache.commons.pool2.PooledObject;
-import org.apache.commons.pool2.impl.DefaultPooledObject;
-import org.apache.commons.pool2.BasePooledObjectFactory;
-import org.apache.commons.pool2.impl.GenericObjectPool;
-import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 
-import java.util.*;
-import java.util.stream.IntStream;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class SpeechSynthesisScenarioSamples {
 
-    public static class SynthesizerPoolFactory extends BasePooledObjectFactory<SpeechSynthesizer> {
-
-        private SpeechConfig config;
-
-        public SynthesizerPoolFactory(){
-            config = SpeechConfig.fromSubscription("YourSubscriptionKey", "YourServiceRegion");
-        }
-
-        @Override
-        public SpeechSynthesizer create() throws Exception {
-            return new SpeechSynthesizer(config, null);
-        }
-
-        @Override
-        public PooledObject<SpeechSynthesizer> wrap(SpeechSynthesizer synthesizer) {
-            return new DefaultPooledObject<>(synthesizer);
-        }
-
-        @Override
-        public void destroyObject(PooledObject<SpeechSynthesizer> p) throws Exception {
-            SpeechSynthesizer synthesizer = p.getObject();
-            synthesizer.close();
-        }
-    }
-
     // Speech synthesis sample for server scenario
     public static void synthesisServerScenarioAsync() throws InterruptedException {
+        // 64 concurrent requests in a closed loop: 10 seconds of warm-up, then one minute measured.
+        // Raise the concurrency (and pool size) and set a request rate to see how far a single JVM scales.
+        LoadDriver.Config loadConfig = new LoadDriver.Config();
+        loadConfig.setConcurrency(64);
+        loadConfig.setRequestsPerSecond(0);
+        loadConfig.setWarmUpMillis(TimeUnit.SECONDS.toMillis(10));
+        loadConfig.setDurationMillis(TimeUnit.SECONDS.toMillis(60));
+        synthesisServerScenarioAsync(loadConfig);
+    }
+
+    public static void synthesisServerScenarioAsync(LoadDriver.Config loadConfig) throws InterruptedException {
         // For server scenario synthesizing with high concurrency, we recommend two methods to reduce the latency.
         // Firstly, reuse the synthesizers (e.g. use a synthesizer pool )to reduce the connection establish latency;
         // secondly, use AudioOutputStream or synthesizing event to streaming receive the synthesized audio to lower the first byte latency.
 
-        GenericObjectPoolConfig<SpeechSynthesizer> poolConfig = new GenericObjectPoolConfig<>();
+        // The pool keeps connected synthesizers ready ahead of demand; it sizes the number of idle
+        // synthesizers from the recent request rate and evicts synthesizers that keep failing.
+        SpeechConfig config = SpeechConfig.fromSubscription("YourSubscriptionKey", "YourServiceRegion");
+        SynthesizerPool.Config poolConfig = new SynthesizerPool.Config();
+        poolConfig.setMinIdle(2);
+        poolConfig.setMaxTotal(loadConfig.getConcurrency());
+        SynthesizerPool<SpeechSynthesizer> pool = SynthesizerPool.create(config, poolConfig);
+
+        runServerScenario(pool, loadConfig, (synthesizer, text, onAudio) -> {
+            EventHandler<SpeechSynthesisEventArgs> a = (Object o, SpeechSynthesisEventArgs e) -> {
+                // streaming receive audio data here.
+                onAudio.run();
+            };
+
+            synthesizer.Synthesizing.addEventListener(a);
+            try (SpeechSynthesisResult result = synthesizer.SpeakTextAsync(text).get()) {
+                return result.getReason() == ResultReason.SynthesizingAudioCompleted
+                    ? null
+                    : SpeechSynthesisCancellationDetails.fromResult(result).toString();
+            } finally {
+                synthesizer.Synthesizing.removeEventListener(a);
+            }
+        });
+    }
+
+    // Speaks text on a borrowed synthesizer, calling onAudio for every Synthesizing event. Returns null
+    // when the audio is complete, or what went wrong. Lets runServerScenario drive the SDK and the fake backend.
+    private interface ScenarioSynthesizer<T> {
+        String speak(T synthesizer, String text, Runnable onAudio) throws Exception;
+    }
+
+    private static <T> void runServerScenario(SynthesizerPool<T> pool, LoadDriver.Config loadConfig,
+                                              ScenarioSynthesizer<T> scenarioSynthesizer) throws InterruptedException {
+        // The requests below run in parallel, so collect the timings in thread-safe histograms
+        // (bounded memory, no sorting) instead of plain lists.
+        LatencyHistogram latencies = new LatencyHistogram(TimeUnit.MINUTES.toMillis(10));
+        LatencyHistogram processingTimes = new LatencyHistogram(TimeUnit.MINUTES.toMillis(10));
+
+        // Each request runs on its own (virtual, on JDK 21+) thread, so blocking on the result is fine.
+        LoadDriver driver = new LoadDriver(loadConfig);
+        driver.run((sequence, measured) -> {
+            long start = System.currentTimeMillis();
+            T synthesizer = pool.borrow();
+            AtomicBoolean first = new AtomicBoolean(true);
+
+            // Released also when speaking throws, so failures cannot drain the pool; it closes
+            // the synthesizer after repeated failures.
+            String error = "The synthesis failed.";
+            try {
+                error = scenarioSynthesizer.speak(synthesizer, String.format("today is a nice day. %d", sequence), () -> {
+                    if (first.compareAndSet(true, false) && measured) {
+                        latencies.record(System.currentTimeMillis() - start);
+                    }
+                });
+            } finally {
+                pool.release(synthesizer, error == null);
+            }
+
+            if (error != null) {
+                // Counted as failed by the load driver.
+                throw new IllegalStateException(error);
+            }
+            if (measured) {
+                processingTimes.record(System.currentTimeMillis() - start);
+            }
+        });
+
+        System.out.println(driver.report());
+        System.out.println(latencies.report("Latency", "ms"));
+        System.out.println(processingTimes.report("Process Time", "ms"));
+        System.out.println(pool.report());
+
+        pool.close();
+    }
+
+    // Speech synthesis sample for server scenario, without blocking a thread per request
+    public static void synthesisServerScenarioNonBlockingAsync() throws InterruptedException {
+        // Instead of borrowing a synthesizer and waiting on SpeakTextAsync(...).get() for every request,
+        // AsyncSynthesizer queues requests on the pool and completes them from the synthesis events.
+        // The loop below starts all requests of a turn from a single thread.
+        SpeechConfig config = SpeechConfig.fromSubscription("YourSubscriptionKey", "YourServiceRegion");
+        SynthesizerPool.Config poolConfig = new SynthesizerPool.Config();
         poolConfig.setMinIdle(2);
         poolConfig.setMaxTotal(64);
-        GenericObjectPool<SpeechSynthesizer> pool = new GenericObjectPool<>(new SynthesizerPoolFactory(),
-            poolConfig);
+        SynthesizerPool<SpeechSynthesizer> pool = SynthesizerPool.create(config, poolConfig);
+        AsyncSynthesizer asyncSynthesizer = new AsyncSynthesizer(pool);
 
-        List<Long> latencies = new ArrayList<>();
-        List<Long> processingTimes = new ArrayList<>();
+        LatencyHistogram latencies = new LatencyHistogram(TimeUnit.MINUTES.toMillis(10));
+        LatencyHistogram processingTimes = new LatencyHistogram(TimeUnit.MINUTES.toMillis(10));
 
         for (int turn = 0; turn < 3; turn++) {
             int finalTurn = turn;
             System.out.println(String.format("Turn: %d", finalTurn));
 
-            IntStream.range(0, 64).parallel().forEach(i -> {
-                try {
-                    long start = System.currentTimeMillis();
-                    SpeechSynthesizer synthesizer = pool.borrowObject();
-                    final boolean[] first = {true};
-
-                    EventHandler<SpeechSynthesisEventArgs> a = (Object o, SpeechSynthesisEventArgs e) -> {
-                        // streaming receive audio data here.
-                        if (!first[0]) return;
-                        System.out.println(String.format("First byte latency: %s ms.", System.currentTimeMillis() - start));
-                        first[0] = false;
-                        if (finalTurn > 0) {
-                            latencies.add(System.currentTimeMillis() - start);
-                        }
-                    };
-
-                    synthesizer.Synthesizing.addEventListener(a);
-
-                    SpeechSynthesisResult result = synthesizer.SpeakTextAsync(String.format("today is a nice day. %d%d", finalTurn, i)).get();
+            // More requests than synthesizers, the rest wait in the pool's queue without holding a thread.
+            CompletableFuture<?>[] requests = new CompletableFuture<?>[256];
+            for (int i = 0; i < requests.length; i++) {
+                long start = System.currentTimeMillis();
+                AtomicBoolean first = new AtomicBoolean(true);
 
+                requests[i] = asyncSynthesizer.speakTextAsync(String.format("today is a nice day. %d%d", finalTurn, i), (o, e) -> {
+                    // streaming receive audio data here.
+                    if (first.compareAndSet(true, false) && finalTurn > 0) {
+                        latencies.record(System.currentTimeMillis() - start);
+                    }
+                }).thenAccept(result -> {
                     if (result.getReason() == ResultReason.SynthesizingAudioCompleted) {
                         if (finalTurn > 0) {
-                            processingTimes.add(System.currentTimeMillis() - start);
+                            processingTimes.record(System.currentTimeMillis() - start);
                         }
-                        synthesizer.Synthesizing.removeEventListener(a);
-                        pool.returnObject(synthesizer);
                     }
                     else {
-                        SpeechSynthesisCancellationDetails speechSynthesisCancellationDetails = SpeechSynthesisCancellationDetails.fromResult(result);
-                        System.out.println(speechSynthesisCancellationDetails.toString());
-                        synthesizer.close();
+                        System.out.println(SpeechSynthesisCancellationDetails.fromResult(result).toString());
                     }
+                    result.close();
+                });
+            }
+
+            try {
+                CompletableFuture.allOf(requests).join();
+            } catch (CompletionException e) {
+                e.printStackTrace();
+            }
+            Thread.sleep(2000);
+        }
 
+        System.out.println(latencies.report("Latency", "ms"));
+        System.out.println(processingTimes.report("Process Time", "ms"));
+        System.out.println(pool.report());
+
+        pool.close();
+    }
 
-                } catch (Exception e) {
-                    e.printStackTrace();
+    // Speech synthesis sample for server scenario, against the offline fake backend
+    public static void synthesisServerScenarioOfflineAsync() throws InterruptedException, IOException {
+        // Same harness as synthesisServerScenarioAsync, but the synthesizers are in-process fakes that stream
+        // audio from sampledata/audiofiles with made-up latencies, so no subscription key is needed and the
+        // numbers only depend on this process. Use it to compare changes to the pool or the load driver.
+        FakeSpeechBackend.Config backendConfig = new FakeSpeechBackend.Config();
+        backendConfig.setFirstByteLatency(FakeSpeechBackend.LatencyModel.logNormal(150, 600));
+        backendConfig.setSynthesisChunkBytes(3200);
+        backendConfig.setSynthesisFailureRate(0.01);
+
+        LoadDriver.Config loadConfig = new LoadDriver.Config();
+        loadConfig.setConcurrency(256);
+        loadConfig.setWarmUpMillis(TimeUnit.SECONDS.toMillis(5));
+        loadConfig.setDurationMillis(TimeUnit.SECONDS.toMillis(30));
+
+        try (FakeSpeechBackend backend = new FakeSpeechBackend(backendConfig)) {
+            SynthesizerPool.Config poolConfig = new SynthesizerPool.Config();
+            poolConfig.setMinIdle(2);
+            poolConfig.setMaxTotal(loadConfig.getConcurrency());
+            SynthesizerPool<FakeSpeechSynthesizer> pool = SynthesizerPool.create(backend, poolConfig);
+
+            runServerScenario(pool, loadConfig, (synthesizer, text, onAudio) -> {
+                EventHandler<FakeSpeechSynthesizer.EventArgs> a = (Object o, FakeSpeechSynthesizer.EventArgs e) -> onAudio.run();
+
+                synthesizer.Synthesizing.addEventListener(a);
+                try (FakeSpeechSynthesizer.Result result = synthesizer.SpeakTextAsync(text).get()) {
+                    return result.getReason() == ResultReason.SynthesizingAudioCompleted ? null : result.toString();
+                } finally {
+                    synthesizer.Synthesizing.removeEventListener(a);
                 }
             });
-
-            Thread.sleep(2000);
         }
-
-        Collections.sort(latencies);
-        int avgLatency = (int) latencies.stream().mapToLong(val -> val).average().orElse(-1.0);
-        Long minLatency = latencies.stream().mapToLong(val -> val).min().orElse(-1);
-        Long maxLatency = latencies.stream().mapToLong(val -> val).max().orElse(-1);
-        Long latency90 = latencies.get((int) Math.ceil(latencies.size() * 0.9));
-        Long latency95 = latencies.get((int) Math.ceil(latencies.size() * 0.95));
-
-        Collections.sort(processingTimes);
-        int avgProcessingTime = (int) processingTimes.stream().mapToLong(val -> val).average().orElse(-1.0);
-        Long minProcessingTime = processingTimes.stream().mapToLong(val -> val).min().orElse(-1);
-        Long maxProcessingTime = processingTimes.stream().mapToLong(val -> val).max().orElse(-1);
-        Long processingTime90 = processingTimes.get((int) Math.ceil(processingTimes.size() * 0.9));
-        Long processingTime95 = processingTimes.get((int) Math.ceil(processingTimes.size() * 0.95));
-
-        System.out.println(String.format(
-            "Min Latency                 :%d ms\n" +
-                "Max Latency                 :%d ms\n" +
-                "Average Latency             :%d ms\n" +
-                "90 Percentile Latency       :%d ms\n" +
-                "95 Percentile Latency       :%d ms\n" +
-                "\n" +
-                "Min Process Time            :%d ms\n" +
-                "Max Process Time            :%d ms\n" +
-                "Average Process Time        :%d ms\n" +
-                "90 Percentile Process Time  :%d ms\n" +
-                "95 Percentile Process Time  :%d ms\n",
-            minLatency, maxLatency, avgLatency, latency90, latency95, minProcessingTime, maxProcessingTime,
-            avgProcessingTime, processingTime90, processingTime95
-        ));
     }
-
 }
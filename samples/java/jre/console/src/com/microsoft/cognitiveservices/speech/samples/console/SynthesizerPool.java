@@ -0,0 +1,616 @@
+package com.microsoft.cognitiveservices.speech.samples.console;
+
+//
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE.md file in the project root for full license information.
+//
+
+import com.microsoft.cognitiveservices.speech.Connection;
+import com.microsoft.cognitiveservices.speech.SpeechConfig;
+import com.microsoft.cognitiveservices.speech.SpeechSynthesizer;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Pool of synthesizers for server scenarios.
+//
+// A background task keeps a number of idle synthesizers created and
+// connected, so borrowers do not pay for connection setup. That number is
+// derived from the recent arrival rate and hold time of borrowers (Little's
+// law) and stays between Config.minIdle and Config.maxIdle. Synthesizers that
+// fail Config.maxConsecutiveFailures times in a row, or that stay idle longer
+// than Config.idleTimeoutMillis while the pool is above its target, are
+// closed. Borrow wait and creation times are recorded in histograms.
+//
+// Borrowed synthesizers must be handed back with release(), also when the
+// synthesis was canceled, so the pool can track their health. borrowAsync()
+// queues up instead of blocking when the pool is exhausted. Waiting borrowers,
+// blocking or not, are served first come, first served.
+public class SynthesizerPool<T> implements AutoCloseable {
+
+    public interface Factory<T> {
+        T create() throws Exception;
+
+        // Called on the maintenance thread for synthesizers created ahead of demand.
+        default void warmUp(T synthesizer) throws Exception {
+        }
+
+        void destroy(T synthesizer);
+    }
+
+    public static class Config {
+        private int minIdle = 2;
+        private int maxIdle = 32;
+        private int maxTotal = 64;
+        private int maxConsecutiveFailures = 3;
+        private long idleTimeoutMillis = TimeUnit.MINUTES.toMillis(5);
+        private long maintenanceIntervalMillis = 500;
+        // Idle synthesizers kept per synthesizer in use on average.
+        private double idleHeadroom = 0.5;
+        // Threads of getExecutor(), which runs work that must not stay on an SDK callback thread.
+        private int callbackThreads = 2;
+
+        public int getMinIdle() {
+            return minIdle;
+        }
+
+        public void setMinIdle(int minIdle) {
+            this.minIdle = minIdle;
+        }
+
+        public int getMaxIdle() {
+            return maxIdle;
+        }
+
+        public void setMaxIdle(int maxIdle) {
+            this.maxIdle = maxIdle;
+        }
+
+        public int getMaxTotal() {
+            return maxTotal;
+        }
+
+        public void setMaxTotal(int maxTotal) {
+            this.maxTotal = maxTotal;
+        }
+
+        public int getMaxConsecutiveFailures() {
+            return maxConsecutiveFailures;
+        }
+
+        public void setMaxConsecutiveFailures(int maxConsecutiveFailures) {
+            this.maxConsecutiveFailures = maxConsecutiveFailures;
+        }
+
+        public long getIdleTimeoutMillis() {
+            return idleTimeoutMillis;
+        }
+
+        public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+            this.idleTimeoutMillis = idleTimeoutMillis;
+        }
+
+        public long getMaintenanceIntervalMillis() {
+            return maintenanceIntervalMillis;
+        }
+
+        public void setMaintenanceIntervalMillis(long maintenanceIntervalMillis) {
+            this.maintenanceIntervalMillis = maintenanceIntervalMillis;
+        }
+
+        public double getIdleHeadroom() {
+            return idleHeadroom;
+        }
+
+        public void setIdleHeadroom(double idleHeadroom) {
+            this.idleHeadroom = idleHeadroom;
+        }
+
+        public int getCallbackThreads() {
+            return callbackThreads;
+        }
+
+        public void setCallbackThreads(int callbackThreads) {
+            this.callbackThreads = callbackThreads;
+        }
+    }
+
+    // Pool of SpeechSynthesizers without audio output (audio is received
+    // through the Synthesizing event or the result), pre-connected through
+    // the Connection object.
+    public static SynthesizerPool<SpeechSynthesizer> create(SpeechConfig speechConfig, Config config) {
+        Map<SpeechSynthesizer, Connection> connections = new ConcurrentHashMap<>();
+        return new SynthesizerPool<>(new Factory<SpeechSynthesizer>() {
+            @Override
+            public SpeechSynthesizer create() {
+                return new SpeechSynthesizer(speechConfig, null);
+            }
+
+            @Override
+            public void warmUp(SpeechSynthesizer synthesizer) {
+                Connection connection = Connection.fromSpeechSynthesizer(synthesizer);
+                connection.openConnection(true);
+                connections.put(synthesizer, connection);
+            }
+
+            @Override
+            public void destroy(SpeechSynthesizer synthesizer) {
+                Connection connection = connections.remove(synthesizer);
+                if (connection != null) {
+                    connection.close();
+                }
+                synthesizer.close();
+            }
+        }, config);
+    }
+
+    // Pool of offline FakeSpeechSynthesizers, to run the server scenario and
+    // the pool benchmarks without a subscription key.
+    public static SynthesizerPool<FakeSpeechSynthesizer> create(FakeSpeechBackend backend, Config config) {
+        return new SynthesizerPool<>(new Factory<FakeSpeechSynthesizer>() {
+            @Override
+            public FakeSpeechSynthesizer create() {
+                return backend.createSynthesizer();
+            }
+
+            @Override
+            public void warmUp(FakeSpeechSynthesizer synthesizer) throws InterruptedException {
+                synthesizer.openConnection();
+            }
+
+            @Override
+            public void destroy(FakeSpeechSynthesizer synthesizer) {
+                synthesizer.close();
+            }
+        }, config);
+    }
+
+    private static class Entry<T> {
+        final T synthesizer;
+        volatile long lastReleasedNanos = System.nanoTime();
+        volatile long borrowedNanos;
+        int consecutiveFailures;
+
+        Entry(T synthesizer) {
+            this.synthesizer = synthesizer;
+        }
+    }
+
+    private static class Waiter<T> {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        final long startNanos;
+
+        Waiter(long startNanos) {
+            this.startNanos = startNanos;
+        }
+    }
+
+    // Alpha for the arrival rate average when demand rises / falls: react to
+    // bursts quickly, shrink slowly.
+    private static final double RISE_ALPHA = 0.5;
+    private static final double DECAY_ALPHA = 0.1;
+
+    private final Factory<T> factory;
+    private final Config config;
+
+    // Most recently released first, so hot connections are reused and the
+    // oldest idle entries collect at the tail for eviction.
+    private final LinkedBlockingDeque<Entry<T>> idle = new LinkedBlockingDeque<>();
+    private final Map<T, Entry<T>> borrowed = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Waiter<T>> waiters = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger total = new AtomicInteger();
+    private final ScheduledExecutorService maintenance;
+    private final ExecutorService callbacks;
+    private volatile boolean closed;
+
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong releases = new AtomicLong();
+    private final AtomicLong holdNanos = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong destroyed = new AtomicLong();
+    private final AtomicLong evictedIdle = new AtomicLong();
+    private final AtomicLong evictedUnhealthy = new AtomicLong();
+    private final LatencyHistogram borrowWaitMicros = new LatencyHistogram(TimeUnit.MINUTES.toMicros(10));
+    private final LatencyHistogram creationMillis = new LatencyHistogram(TimeUnit.MINUTES.toMillis(10));
+
+    // Maintenance state, only touched on the maintenance thread.
+    private long lastTickNanos = System.nanoTime();
+    private long lastBorrows;
+    private long lastReleases;
+    private long lastHoldNanos;
+    private double arrivalRate;
+    private double averageHoldSeconds;
+    private volatile int targetIdle;
+
+    public SynthesizerPool(Factory<T> factory, Config config) {
+        this.factory = factory;
+        this.config = config;
+        this.targetIdle = config.getMinIdle();
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "synthesizer-pool-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.maintenance.scheduleWithFixedDelay(this::maintain, 0, config.getMaintenanceIntervalMillis(), TimeUnit.MILLISECONDS);
+        this.callbacks = Executors.newFixedThreadPool(Math.max(1, config.getCallbackThreads()), r -> {
+            Thread thread = new Thread(r, "synthesizer-pool-callback");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public T borrow() throws Exception {
+        return borrow(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    // Returns null if no synthesizer became available within the timeout.
+    // Once borrowers have to wait, they are served in arrival order, whether
+    // they called borrow() or borrowAsync().
+    public T borrow(long timeout, TimeUnit unit) throws Exception {
+        long start = System.nanoTime();
+        long deadline = unit == TimeUnit.MILLISECONDS && timeout == Long.MAX_VALUE ? Long.MAX_VALUE : start + unit.toNanos(timeout);
+        borrows.incrementAndGet();
+
+        if (closed) {
+            throw new IllegalStateException("The pool is closed.");
+        }
+
+        // Take a synthesizer right away only if nobody is queued up for one,
+        // so queued asynchronous borrowers are not overtaken.
+        if (waiters.isEmpty()) {
+            Entry<T> entry = idle.pollFirst();
+            if (entry == null && tryReserve()) {
+                entry = createEntry();
+            }
+            if (entry != null) {
+                checkout(entry, start);
+                return entry.synthesizer;
+            }
+        }
+
+        Waiter<T> waiter = new Waiter<>(start);
+        waiters.add(waiter);
+        dispatch();
+        if (closed) {
+            // close() may have emptied the queue before the waiter was added.
+            waiter.future.completeExceptionally(new IllegalStateException("The pool is closed."));
+        }
+        try {
+            if (deadline == Long.MAX_VALUE) {
+                return waiter.future.get();
+            }
+            return waiter.future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ex) {
+            return giveUp(waiter);
+        } catch (InterruptedException ex) {
+            giveUpAndRelease(waiter);
+            throw ex;
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof Exception) {
+                throw (Exception) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    // Borrows without blocking the calling thread. If no synthesizer is idle
+    // and the pool is at maxTotal, the request queues up and the future
+    // completes on the thread that releases the next synthesizer. Cancelling
+    // the future gives up the place in the queue.
+    public CompletableFuture<T> borrowAsync() {
+        long start = System.nanoTime();
+        borrows.incrementAndGet();
+
+        if (closed) {
+            CompletableFuture<T> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IllegalStateException("The pool is closed."));
+            return failed;
+        }
+
+        // As in borrow(), do not overtake borrowers already queued up.
+        Entry<T> entry = waiters.isEmpty() ? idle.pollFirst() : null;
+        if (entry == null && waiters.isEmpty() && tryReserve()) {
+            try {
+                entry = createEntry();
+            } catch (Exception ex) {
+                CompletableFuture<T> failed = new CompletableFuture<>();
+                failed.completeExceptionally(ex);
+                return failed;
+            }
+        }
+        if (entry != null) {
+            checkout(entry, start);
+            return CompletableFuture.completedFuture(entry.synthesizer);
+        }
+
+        Waiter<T> waiter = new Waiter<>(start);
+        waiters.add(waiter);
+        // A synthesizer may have been released between the poll above and
+        // queueing up, make sure it is not left idle.
+        dispatch();
+        return waiter.future;
+    }
+
+    // Hands a synthesizer back. Pass healthy = false when the synthesis was
+    // canceled or failed; after too many failures in a row it is closed.
+    public void release(T synthesizer, boolean healthy) {
+        Entry<T> entry = borrowed.remove(synthesizer);
+        if (entry == null) {
+            throw new IllegalArgumentException("The synthesizer was not borrowed from this pool.");
+        }
+
+        long now = System.nanoTime();
+        holdNanos.addAndGet(now - entry.borrowedNanos);
+        releases.incrementAndGet();
+
+        entry.consecutiveFailures = healthy ? 0 : entry.consecutiveFailures + 1;
+        if (closed) {
+            destroy(entry);
+        } else if (entry.consecutiveFailures >= config.getMaxConsecutiveFailures()) {
+            evictedUnhealthy.incrementAndGet();
+            destroy(entry);
+        } else {
+            entry.lastReleasedNanos = now;
+            idle.offerFirst(entry);
+        }
+        dispatch();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        maintenance.shutdown();
+        try {
+            maintenance.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        Entry<T> entry;
+        while ((entry = idle.pollFirst()) != null) {
+            destroy(entry);
+        }
+
+        Waiter<T> waiter;
+        while ((waiter = waiters.poll()) != null) {
+            waiter.future.completeExceptionally(new IllegalStateException("The pool is closed."));
+        }
+        callbacks.shutdown();
+    }
+
+    // For work that follows a synthesis event, such as detaching listeners
+    // and releasing the synthesizer, which must not run on the SDK thread
+    // raising the event. Not the maintenance thread, so completions do not
+    // wait behind connection setup.
+    // Once the pool is closed, work runs on the calling thread.
+    public Executor getExecutor() {
+        return command -> {
+            try {
+                callbacks.execute(command);
+            } catch (RejectedExecutionException ex) {
+                command.run();
+            }
+        };
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getActiveCount() {
+        return borrowed.size();
+    }
+
+    public int getTotalCount() {
+        return total.get();
+    }
+
+    public int getTargetIdle() {
+        return targetIdle;
+    }
+
+    public long getCreatedCount() {
+        return created.get();
+    }
+
+    public long getDestroyedCount() {
+        return destroyed.get();
+    }
+
+    public long getEvictedIdleCount() {
+        return evictedIdle.get();
+    }
+
+    public long getEvictedUnhealthyCount() {
+        return evictedUnhealthy.get();
+    }
+
+    public LatencyHistogram getBorrowWaitMicros() {
+        return borrowWaitMicros;
+    }
+
+    public LatencyHistogram getCreationMillis() {
+        return creationMillis;
+    }
+
+    public String report() {
+        return String.format(
+            "Pool Total / Active / Idle   :%d / %d / %d (target idle %d)\n" +
+            "Pool Created / Destroyed     :%d / %d\n" +
+            "Pool Evicted Idle / Unhealthy:%d / %d\n",
+            getTotalCount(), getActiveCount(), getIdleCount(), getTargetIdle(),
+            getCreatedCount(), getDestroyedCount(),
+            getEvictedIdleCount(), getEvictedUnhealthyCount())
+            + borrowWaitMicros.report("Borrow Wait", "us")
+            + creationMillis.report("Creation", "ms");
+    }
+
+    // region pool helper functions
+    private void maintain() {
+        try {
+            updateTarget();
+            evictIdle();
+            while (!closed && idle.size() < targetIdle && tryReserve()) {
+                Entry<T> entry = createEntry();
+                try {
+                    factory.warmUp(entry.synthesizer);
+                } catch (Exception ex) {
+                    destroy(entry);
+                    throw ex;
+                }
+                idle.offerLast(entry);
+                dispatch();
+            }
+        } catch (Exception ex) {
+            // Keep the maintenance task alive, e.g. when the service is unreachable for a moment.
+            System.out.println("Synthesizer pool maintenance failed: " + ex);
+        }
+    }
+
+    private void updateTarget() {
+        long now = System.nanoTime();
+        double seconds = (now - lastTickNanos) / 1e9;
+        if (seconds <= 0) {
+            return;
+        }
+
+        long currentBorrows = borrows.get();
+        long currentReleases = releases.get();
+        long currentHoldNanos = holdNanos.get();
+
+        double rate = (currentBorrows - lastBorrows) / seconds;
+        arrivalRate += (rate > arrivalRate ? RISE_ALPHA : DECAY_ALPHA) * (rate - arrivalRate);
+        if (currentReleases > lastReleases) {
+            double hold = (currentHoldNanos - lastHoldNanos) / 1e9 / (currentReleases - lastReleases);
+            averageHoldSeconds += RISE_ALPHA * (hold - averageHoldSeconds);
+        }
+
+        lastTickNanos = now;
+        lastBorrows = currentBorrows;
+        lastReleases = currentReleases;
+        lastHoldNanos = currentHoldNanos;
+
+        // Little's law: synthesizers in use on average = arrival rate * hold time.
+        int demand = (int) Math.ceil(arrivalRate * averageHoldSeconds * config.getIdleHeadroom());
+        targetIdle = Math.max(config.getMinIdle(), Math.min(demand, config.getMaxIdle()));
+    }
+
+    private void evictIdle() {
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.getIdleTimeoutMillis());
+        Entry<T> oldest;
+        while (idle.size() > targetIdle && (oldest = idle.peekLast()) != null
+            && System.nanoTime() - oldest.lastReleasedNanos > timeoutNanos) {
+            // A borrower may have taken it in the meantime.
+            if (idle.removeLastOccurrence(oldest)) {
+                evictedIdle.incrementAndGet();
+                destroy(oldest);
+            }
+        }
+    }
+
+    private void checkout(Entry<T> entry, long startNanos) {
+        long now = System.nanoTime();
+        borrowWaitMicros.record(TimeUnit.NANOSECONDS.toMicros(now - startNanos));
+        entry.borrowedNanos = now;
+        borrowed.put(entry.synthesizer, entry);
+    }
+
+    // Hands idle synthesizers, or capacity freed by destroyed ones, to queued
+    // asynchronous borrowers.
+    private void dispatch() {
+        while (!waiters.isEmpty() && !closed) {
+            Entry<T> entry = idle.pollFirst();
+            if (entry == null) {
+                if (!tryReserve()) {
+                    return;
+                }
+                try {
+                    entry = createEntry();
+                } catch (Exception ex) {
+                    Waiter<T> waiter = waiters.poll();
+                    if (waiter != null) {
+                        waiter.future.completeExceptionally(ex);
+                    }
+                    continue;
+                }
+            }
+
+            Waiter<T> waiter = waiters.poll();
+            if (waiter == null) {
+                idle.offerFirst(entry);
+                return;
+            }
+
+            // Register before completing, the continuation may release right away.
+            checkout(entry, waiter.startNanos);
+            if (!waiter.future.complete(entry.synthesizer)) {
+                // The borrower gave up (cancelled the future).
+                borrowed.remove(entry.synthesizer);
+                idle.offerFirst(entry);
+            }
+        }
+    }
+
+    // Leaves the queue; returns the synthesizer if it was handed over meanwhile.
+    private T giveUp(Waiter<T> waiter) {
+        waiters.remove(waiter);
+        if (waiter.future.cancel(false)) {
+            return null;
+        }
+        return waiter.future.isCompletedExceptionally() ? null : waiter.future.join();
+    }
+
+    private void giveUpAndRelease(Waiter<T> waiter) {
+        T synthesizer = giveUp(waiter);
+        if (synthesizer != null) {
+            release(synthesizer, true);
+        }
+    }
+
+    private boolean tryReserve() {
+        int current;
+        while ((current = total.get()) < config.getMaxTotal()) {
+            if (total.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Entry<T> createEntry() throws Exception {
+        long start = System.nanoTime();
+        try {
+            Entry<T> entry = new Entry<>(factory.create());
+            created.incrementAndGet();
+            creationMillis.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return entry;
+        } catch (Exception ex) {
+            total.decrementAndGet();
+            throw ex;
+        }
+    }
+
+    private void destroy(Entry<T> entry) {
+        total.decrementAndGet();
+        destroyed.incrementAndGet();
+        try {
+            factory.destroy(entry.synthesizer);
+        } catch (RuntimeException ex) {
+            System.out.println("Closing synthesizer failed: " + ex);
+        }
+    }
+    // endregion
+}
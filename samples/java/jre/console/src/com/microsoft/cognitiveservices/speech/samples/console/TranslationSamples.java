@@ -7,8 +7,8 @@ package com.microsoft.cognitiveservices.speech.samples.console;
 import java.io.IOException;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Semaphore;
 
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
@@ -137,12 +137,8 @@ public class TranslationSamples {
 
     // Translation using file input.
     // <TranslationWithFileAsync>
-    private static Semaphore stopTranslationWithFileSemaphore;
-
     public static void translationWithFileAsync() throws InterruptedException, ExecutionException
     {
-        stopTranslationWithFileSemaphore = new Semaphore(0);
-
         // Creates an instance of a speech translation config with specified
         // subscription key and service region. Replace with your own subscription key
         // and service region (e.g., "westus").
@@ -159,6 +155,9 @@ public class TranslationSamples {
         AudioConfig audioInput = AudioConfig.fromWavFileInput("YourAudioFile.wav");
         TranslationRecognizer recognizer = new TranslationRecognizer(config, audioInput);
         {
+            // Completed when the session stops or is canceled.
+            CompletableFuture<Void> translationDone = new CompletableFuture<>();
+
             // Subscribes to events.
             recognizer.recognizing.addEventListener((s, e) -> {
                 System.out.println("RECOGNIZING in '" + fromLanguage + "': Text=" + e.getResult().getText());
@@ -196,7 +195,7 @@ public class TranslationSamples {
                     System.out.println("CANCELED: Did you update the subscription info?");
                 }
 
-                stopTranslationWithFileSemaphore.release();;
+                translationDone.complete(null);
             });
 
             recognizer.sessionStarted.addEventListener((s, e) -> {
@@ -208,7 +207,7 @@ public class TranslationSamples {
 
                 // Stops translation when session stop is detected.
                 System.out.println("\nStop translation.");
-                stopTranslationWithFileSemaphore.release();;
+                translationDone.complete(null);
             });
 
             // Starts continuous recognition. Uses StopContinuousRecognitionAsync() to stop recognition.
@@ -216,7 +215,7 @@ public class TranslationSamples {
             recognizer.startContinuousRecognitionAsync().get();
 
             // Waits for completion.
-            stopTranslationWithFileSemaphore.acquire();;
+            translationDone.get();
 
             // Stops translation.
             recognizer.stopContinuousRecognitionAsync().get();
@@ -225,12 +224,8 @@ public class TranslationSamples {
     // </TranslationWithFileAsync>
 
     // Translation using audio stream.
-    private static Semaphore stopTranslationWithAudioStreamSemaphore;
-
     public static void translationWithAudioStreamAsync() throws InterruptedException, ExecutionException, FileNotFoundException
     {
-        stopTranslationWithAudioStreamSemaphore = new Semaphore(0);
-
         // Creates an instance of a speech translation config with specified
         // subscription key and service region. Replace with your own subscription key
         // and service region (e.g., "westus").
@@ -286,8 +281,6 @@ public class TranslationSamples {
                     System.out.println("CANCELED: ErrorDetails=" + e.getErrorDetails());
                     System.out.println("CANCELED: Did you update the subscription info?");
                 }
-
-                stopTranslationWithAudioStreamSemaphore.release();
             });
 
             recognizer.sessionStarted.addEventListener((s, e) -> {
@@ -296,21 +289,21 @@ public class TranslationSamples {
 
             recognizer.sessionStopped.addEventListener((s, e) -> {
                 System.out.println("\nSession stopped event.");
-
-                // Stops translation when session stop is detected.
-                System.out.println("\nStop translation.");
-                stopTranslationWithAudioStreamSemaphore.release();
             });
 
-            // Starts continuous recognition. Uses StopContinuousRecognitionAsync() to stop recognition.
-            System.out.println("Start translation...");
-            recognizer.startContinuousRecognitionAsync().get();
+            // Completes on sessionStopped or canceled of this session only.
+            try (RecognitionSession session = RecognitionSession.of(recognizer)) {
+                // Starts continuous recognition. Uses StopContinuousRecognitionAsync() to stop recognition.
+                System.out.println("Start translation...");
+                recognizer.startContinuousRecognitionAsync().get();
 
-            // Waits for completion.
-            stopTranslationWithAudioStreamSemaphore.acquire();
+                // Waits for completion.
+                SessionSummary summary = session.getCompletion().get();
+                System.out.println(summary);
 
-            // Stops translation.
-            recognizer.stopContinuousRecognitionAsync().get();
+                // Stops translation.
+                recognizer.stopContinuousRecognitionAsync().get();
+            }
         }
     }
 }
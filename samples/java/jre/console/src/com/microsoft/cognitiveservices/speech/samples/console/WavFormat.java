@@ -0,0 +1,114 @@
+package com.microsoft.cognitiveservices.speech.samples.console;
+
+//
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE.md file in the project root for full license information.
+//
+
+// Format of a wave file as described by its "fmt " chunk, together with the
+// location of the "data" chunk inside the file.
+public final class WavFormat {
+    public static final int WAVE_FORMAT_PCM = 0x0001;
+    public static final int WAVE_FORMAT_IEEE_FLOAT = 0x0003;
+    public static final int WAVE_FORMAT_EXTENSIBLE = 0xFFFE;
+
+    // Returned by getDataLength() when the writer did not record the data size
+    // (e.g. a live capture that was never finalized).
+    public static final long UNKNOWN_LENGTH = -1;
+
+    private final int formatTag;
+    private final int channels;
+    private final int samplesPerSec;
+    private final int avgBytesPerSec;
+    private final int blockAlign;
+    private final int bitsPerSample;
+    private final int validBitsPerSample;
+    private final int channelMask;
+    private final boolean rf64;
+    private final long dataOffset;
+    private final long dataLength;
+
+    WavFormat(int formatTag, int channels, int samplesPerSec, int avgBytesPerSec, int blockAlign,
+              int bitsPerSample, int validBitsPerSample, int channelMask, boolean rf64,
+              long dataOffset, long dataLength) {
+        this.formatTag = formatTag;
+        this.channels = channels;
+        this.samplesPerSec = samplesPerSec;
+        this.avgBytesPerSec = avgBytesPerSec;
+        this.blockAlign = blockAlign;
+        this.bitsPerSample = bitsPerSample;
+        this.validBitsPerSample = validBitsPerSample;
+        this.channelMask = channelMask;
+        this.rf64 = rf64;
+        this.dataOffset = dataOffset;
+        this.dataLength = dataLength;
+    }
+
+    // The effective format tag. For WAVE_FORMAT_EXTENSIBLE files this is taken
+    // from the sub format GUID, so callers only ever see PCM, IEEE_FLOAT or
+    // whatever else the file really contains.
+    public int getFormatTag() {
+        return formatTag;
+    }
+
+    public boolean isPcm() {
+        return formatTag == WAVE_FORMAT_PCM;
+    }
+
+    public boolean isFloat() {
+        return formatTag == WAVE_FORMAT_IEEE_FLOAT;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public int getSamplesPerSec() {
+        return samplesPerSec;
+    }
+
+    public int getAvgBytesPerSec() {
+        return avgBytesPerSec;
+    }
+
+    public int getBlockAlign() {
+        return blockAlign;
+    }
+
+    public int getBitsPerSample() {
+        return bitsPerSample;
+    }
+
+    public int getValidBitsPerSample() {
+        return validBitsPerSample;
+    }
+
+    public int getChannelMask() {
+        return channelMask;
+    }
+
+    public boolean isRf64() {
+        return rf64;
+    }
+
+    // Byte offset of the first audio sample, relative to the start of the file.
+    public long getDataOffset() {
+        return dataOffset;
+    }
+
+    // Size of the audio payload in bytes, or UNKNOWN_LENGTH.
+    public long getDataLength() {
+        return dataLength;
+    }
+
+    // True for the format the Speech service consumes without conversion.
+    public boolean isDefaultInputFormat() {
+        return isPcm() && channels == 1 && samplesPerSec == 16000 && bitsPerSample == 16;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("WavFormat(tag=0x%04X, channels=%d, samplesPerSec=%d, bitsPerSample=%d, blockAlign=%d, rf64=%b, dataOffset=%d, dataLength=%d)",
+            formatTag, channels, samplesPerSec, bitsPerSample, blockAlign, rf64, dataOffset, dataLength);
+    }
+}
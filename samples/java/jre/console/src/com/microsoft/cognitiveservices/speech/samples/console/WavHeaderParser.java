@@ -0,0 +1,243 @@
+package com.microsoft.cognitiveservices.speech.samples.console;
+
+//
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE.md file in the project root for full license information.
+//
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Parses the RIFF/RF64 header of a wave file.
+//
+// The header is pulled in with a single bulk read into a little-endian
+// ByteBuffer and walked chunk by chunk, so "fmt " and "data" may appear in any
+// order and be separated by any number of LIST, fact, cue, ... chunks. Only
+// chunks that do not fit into the probe buffer cause further reads.
+public final class WavHeaderParser {
+    // Large enough for the header of practically every file we see; bigger
+    // metadata chunks are skipped on the underlying stream.
+    private static final int PROBE_SIZE = 4096;
+    private static final int MAX_FORMAT_SIZE = 64 * 1024;
+
+    private static final int RIFF = fourCC('R', 'I', 'F', 'F');
+    private static final int RF64 = fourCC('R', 'F', '6', '4');
+    private static final int BW64 = fourCC('B', 'W', '6', '4');
+    private static final int WAVE = fourCC('W', 'A', 'V', 'E');
+    private static final int DS64 = fourCC('d', 's', '6', '4');
+    private static final int FMT = fourCC('f', 'm', 't', ' ');
+    private static final int DATA = fourCC('d', 'a', 't', 'a');
+
+    private static final long UINT32_MAX = 0xFFFFFFFFL;
+
+    private final InputStream stream;
+    private ByteBuffer buffer;
+    // File offset of buffer index 0.
+    private long bufferBase;
+
+    // Parses the header from a stream. After parse() the stream is positioned
+    // somewhere inside the audio data; use getDataStream() to read the audio.
+    public WavHeaderParser(InputStream stream) {
+        this.stream = stream;
+        this.buffer = ByteBuffer.allocate(PROBE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        this.buffer.limit(0);
+    }
+
+    private WavHeaderParser(ByteBuffer file) {
+        this.stream = null;
+        this.buffer = file.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        this.buffer.position(0);
+    }
+
+    // Parses the header of a wave file that is completely available in memory
+    // (e.g. memory-mapped), index 0 being the first byte of the file. The
+    // buffer passed in is not modified.
+    public static WavFormat parse(ByteBuffer file) throws IOException {
+        return new WavHeaderParser(file).parse();
+    }
+
+    public WavFormat parse() throws IOException {
+        ensure(12);
+        int riffTag = buffer.getInt();
+        boolean rf64 = riffTag == RF64 || riffTag == BW64;
+        ThrowIfFalse(rf64 || riffTag == RIFF, "RIFF");
+        long riffSize = readUInt32();
+        ThrowIfFalse(buffer.getInt() == WAVE, "WAVE");
+
+        long ds64DataLength = WavFormat.UNKNOWN_LENGTH;
+        WavFormat format = null;
+
+        while (true) {
+            ThrowIfFalse(tryEnsure(8), "data");
+            int chunkId = buffer.getInt();
+            long chunkSize = readUInt32();
+
+            if (chunkId == DATA) {
+                ThrowIfFalse(format != null, "fmt ");
+                long dataLength;
+                if (rf64 && chunkSize == UINT32_MAX) {
+                    dataLength = ds64DataLength;
+                } else if (chunkSize == UINT32_MAX) {
+                    // Writers that stream to disk leave the size open.
+                    dataLength = WavFormat.UNKNOWN_LENGTH;
+                } else if (chunkSize == 0) {
+                    // Some writers only patch the RIFF size; the data then runs to
+                    // the end of the RIFF chunk, which starts 8 bytes into the file.
+                    long riffEnd = riffSize + 8;
+                    dataLength = riffSize == 0 || riffSize == UINT32_MAX || riffEnd <= position()
+                        ? WavFormat.UNKNOWN_LENGTH
+                        : riffEnd - position();
+                } else {
+                    dataLength = chunkSize;
+                }
+                return new WavFormat(format.getFormatTag(), format.getChannels(), format.getSamplesPerSec(),
+                    format.getAvgBytesPerSec(), format.getBlockAlign(), format.getBitsPerSample(),
+                    format.getValidBitsPerSample(), format.getChannelMask(), rf64, position(), dataLength);
+            }
+
+            if (chunkId == FMT) {
+                ThrowIfFalse(chunkSize >= 16 && chunkSize <= MAX_FORMAT_SIZE, "formatSize");
+                format = readFormat((int) chunkSize);
+            } else if (chunkId == DS64 && rf64) {
+                ThrowIfFalse(chunkSize >= 24, "ds64");
+                ensure(24);
+                /* long riffSize64 = */ buffer.getLong();
+                ds64DataLength = buffer.getLong();
+                /* long sampleCount = */ buffer.getLong();
+                skip(chunkSize - 24);
+            } else {
+                // LIST, fact, cue, bext, junk, ... are not needed for recognition.
+                skip(chunkSize);
+            }
+
+            // Chunks are word aligned.
+            skip(chunkSize & 1);
+        }
+    }
+
+    // Returns a stream over the audio data that starts right after the header.
+    // Bytes that were read ahead into the probe buffer are served first.
+    public InputStream getDataStream() {
+        ThrowIfFalse(stream != null, "not parsing a stream");
+        if (!buffer.hasRemaining()) {
+            return stream;
+        }
+        return new SequenceInputStream(
+            new ByteArrayInputStream(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining()),
+            stream);
+    }
+
+    // region helper functions
+    private WavFormat readFormat(int formatSize) throws IOException {
+        ensure(formatSize);
+        int start = buffer.position();
+
+        int formatTag = readUInt16();
+        int channels = readUInt16();
+        int samplesPerSec = buffer.getInt();
+        int avgBytesPerSec = buffer.getInt();
+        int blockAlign = readUInt16();
+        int bitsPerSample = readUInt16();
+        int validBitsPerSample = bitsPerSample;
+        int channelMask = 0;
+
+        if (formatTag == WavFormat.WAVE_FORMAT_EXTENSIBLE && formatSize >= 40) {
+            /* int cbSize = */ readUInt16();
+            validBitsPerSample = readUInt16();
+            channelMask = buffer.getInt();
+            // The first two bytes of the sub format GUID hold the actual format tag.
+            formatTag = readUInt16();
+        }
+
+        buffer.position(start + formatSize);
+        return new WavFormat(formatTag, channels, samplesPerSec, avgBytesPerSec, blockAlign,
+            bitsPerSample, validBitsPerSample, channelMask, false, 0, WavFormat.UNKNOWN_LENGTH);
+    }
+
+    private int readUInt16() {
+        return buffer.getShort() & 0xFFFF;
+    }
+
+    private long readUInt32() {
+        return buffer.getInt() & UINT32_MAX;
+    }
+
+    private long position() {
+        return bufferBase + buffer.position();
+    }
+
+    private void ensure(int count) throws IOException {
+        ThrowIfFalse(tryEnsure(count), "unexpected end of header");
+    }
+
+    // Makes sure at least count bytes are buffered, refilling from the stream
+    // with as few reads as possible. Returns false on end of input.
+    private boolean tryEnsure(int count) throws IOException {
+        if (buffer.remaining() >= count) {
+            return true;
+        }
+        if (stream == null) {
+            return false;
+        }
+
+        bufferBase += buffer.position();
+        if (count > buffer.capacity()) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(count, buffer.capacity() * 2)).order(ByteOrder.LITTLE_ENDIAN);
+            larger.put(buffer);
+            buffer = larger;
+        } else {
+            buffer.compact();
+        }
+
+        // buffer is in write mode here
+        while (buffer.position() < count) {
+            int numRead = stream.read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            if (numRead < 0) {
+                break;
+            }
+            buffer.position(buffer.position() + numRead);
+        }
+        buffer.flip();
+        return buffer.remaining() >= count;
+    }
+
+    private void skip(long count) throws IOException {
+        if (count <= buffer.remaining()) {
+            buffer.position(buffer.position() + (int) count);
+            return;
+        }
+        ThrowIfFalse(stream != null, "unexpected end of header");
+
+        long pending = count - buffer.remaining();
+        bufferBase += buffer.limit() + pending;
+        buffer.clear();
+        buffer.limit(0);
+
+        while (pending > 0) {
+            long skipped = stream.skip(pending);
+            if (skipped <= 0) {
+                // skip() may legally return 0, fall back to reading.
+                if (stream.read() < 0) {
+                    throw new IllegalArgumentException("unexpected end of header");
+                }
+                skipped = 1;
+            }
+            pending -= skipped;
+        }
+    }
+
+    private static int fourCC(char a, char b, char c, char d) {
+        return a | (b << 8) | (c << 16) | (d << 24);
+    }
+
+    private static void ThrowIfFalse(Boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+    // endregion
+}
@@ -7,6 +7,12 @@ import java.io.InputStream;
 
 public class WavStream extends PullAudioInputStreamCallback {
     private final InputStream stream;
+    // Converts to 16 kHz, 16-bit mono when the file is in any other format, null otherwise.
+    private final PullAudioInputStreamCallback converter;
+    private WavFormat format;
+    private WavFormat sourceFormat;
+    // Audio bytes left in the data chunk, or WavFormat.UNKNOWN_LENGTH.
+    private long remaining;
 
     public WavStream(InputStream wavStream) {
         try {
@@ -14,18 +20,51 @@ public class WavStream extends PullAudioInputStreamCallback {
         } catch (Exception ex) {
             throw new IllegalArgumentException(ex.getMessage());
         }
+
+        this.converter = sourceFormat.isDefaultInputFormat() ? null : new AudioConversionStream(new PullAudioInputStreamCallback() {
+            @Override
+            public int read(byte[] dataBuffer) {
+                return readData(dataBuffer);
+            }
+
+            @Override
+            public void close() {
+                WavStream.this.close();
+            }
+        }, sourceFormat);
+        this.format = converter == null ? sourceFormat : AudioConversionStream.targetFormat(sourceFormat);
     }
 
     @Override
     public int read(byte[] dataBuffer) {
+        if (converter != null) {
+            return converter.read(dataBuffer);
+        }
+        return readData(dataBuffer);
+    }
+
+    private int readData(byte[] dataBuffer) {
         long ret = 0;
 
+        // Do not hand trailing chunks (e.g. LIST after data) to the service as audio.
+        int length = dataBuffer.length;
+        if (remaining >= 0) {
+            length = (int) Math.min(length, remaining);
+            if (length == 0) {
+                return 0;
+            }
+        }
+
         try {
-            ret = this.stream.read(dataBuffer, 0, dataBuffer.length);
+            ret = this.stream.read(dataBuffer, 0, length);
         } catch (Exception ex) {
             System.out.println("Read " + ex);
         }
 
+        if (ret > 0 && remaining >= 0) {
+            remaining -= ret;
+        }
+
         return (int)Math.max(0, ret);
     }
 
@@ -40,83 +79,29 @@ public class WavStream extends PullAudioInputStreamCallback {
     // endregion
 
     // region Wav File helper functions
-    private int ReadInt32(InputStream inputStream) throws IOException {
-        int n = 0;
-        for (int i = 0; i < 4; i++) {
-            n |= inputStream.read() << (i * 8);
-        }
-        return n;
-    }
-
-    private long ReadUInt32(InputStream inputStream) throws IOException {
-        long n = 0;
-        for (int i = 0; i < 4; i++) {
-            n |= inputStream.read() << (i * 8);
-        }
-        return n;
+    // The format read() delivers: the converted format when converting.
+    public WavFormat getFormat() {
+        return format;
     }
 
-    private int ReadUInt16(InputStream inputStream) throws IOException {
-        int n = 0;
-        for (int i = 0; i < 2; i++) {
-            n |= inputStream.read() << (i * 8);
-        }
-        return n;
+    // The format of the file.
+    public WavFormat getSourceFormat() {
+        return sourceFormat;
     }
 
     public InputStream parseWavHeader(InputStream reader) throws IOException {
-        // Note: assumption about order of chunks
-        // Tag "RIFF"
-        byte data[] = new byte[4];
-        int numRead = reader.read(data, 0, 4);
-        ThrowIfFalse((numRead == 4) && (data[0] == 'R') && (data[1] == 'I') && (data[2] == 'F') && (data[3] == 'F'), "RIFF");
-
-        // Chunk size
-        /* int fileLength = */ReadInt32(reader);
-
-        // Subchunk, Wave Header
-        // Subchunk, Format
-        // Tag: "WAVE"
-        numRead = reader.read(data, 0, 4);
-        ThrowIfFalse((numRead == 4) && (data[0] == 'W') && (data[1] == 'A') && (data[2] == 'V') && (data[3] == 'E'), "WAVE");
-
-        // Tag: "fmt"
-        numRead = reader.read(data, 0, 4);
-        ThrowIfFalse((numRead == 4) && (data[0] == 'f') && (data[1] == 'm') && (data[2] == 't') && (data[3] == ' '), "fmt ");
-
-        // chunk format size
-        long formatSize = ReadInt32(reader);
-        ThrowIfFalse(formatSize >= 16, "formatSize");
-
-        int formatTag = ReadUInt16(reader);
-        int channels = ReadUInt16(reader);
-        int samplesPerSec = (int) ReadUInt32(reader);
-        @SuppressWarnings("unused")
-        int avgBytesPerSec = (int) ReadUInt32(reader);
-        @SuppressWarnings("unused")
-        int blockAlign = ReadUInt16(reader);
-        int bitsPerSample = ReadUInt16(reader);
-        ThrowIfFalse(formatTag == 1, "PCM"); // PCM
-        ThrowIfFalse(channels == 1, "single channel");
-        ThrowIfFalse(samplesPerSec == 16000, "samples per second");
-        ThrowIfFalse(bitsPerSample == 16, "bits per sample");
-
-        // Until now we have read 16 bytes in format, the rest is cbSize and is ignored
-        // for now.
-        if (formatSize > 16) {
-            numRead = reader.read(new byte[(int) (formatSize - 16)]);
-            ThrowIfFalse(numRead == (int)(formatSize - 16), "could not skip extended format");
-        }
-
-        // Second Chunk, data
-        // tag: data.
-        numRead = reader.read(data, 0, 4);
-        ThrowIfFalse((numRead == 4) && (data[0] == 'd') && (data[1] == 'a') && (data[2] == 't') && (data[3] == 'a'), "data");
-
-        // data chunk size
-        // Note: assumption is that only a single data chunk
-        /* int dataLength = */ReadInt32(reader);
-        return reader;
+        // The parser reads the header in bulk and walks all chunks up to "data",
+        // so there is no assumption about the order of chunks.
+        WavHeaderParser parser = new WavHeaderParser(reader);
+        WavFormat wavFormat = parser.parse();
+
+        // Anything other than 16 kHz, 16-bit mono PCM is converted on the fly.
+        ThrowIfFalse(wavFormat.isPcm() || wavFormat.isFloat(), "PCM");
+        ThrowIfFalse(AudioConversionStream.isSupported(wavFormat), "unsupported format " + wavFormat);
+
+        this.sourceFormat = wavFormat;
+        this.remaining = wavFormat.getDataLength();
+        return parser.getDataStream();
     }
 
     private static void ThrowIfFalse(Boolean condition, String message) {